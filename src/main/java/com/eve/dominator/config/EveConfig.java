@@ -21,6 +21,8 @@ public class EveConfig {
     private MarketData marketData = new MarketData();
     private Esi esi = new Esi();
     private Mokaam mokaam = new Mokaam();
+    private Jobs jobs = new Jobs();
+    private Monitor monitor = new Monitor();
 
     // Getters and setters
     public List<Long> getRegions() { return regions; }
@@ -47,6 +49,12 @@ public class EveConfig {
     public Mokaam getMokaam() { return mokaam; }
     public void setMokaam(Mokaam mokaam) { this.mokaam = mokaam; }
 
+    public Jobs getJobs() { return jobs; }
+    public void setJobs(Jobs jobs) { this.jobs = jobs; }
+
+    public Monitor getMonitor() { return monitor; }
+    public void setMonitor(Monitor monitor) { this.monitor = monitor; }
+
     public static class Monopoly {
         private double maxInvestmentMillions;
         private double targetRoiPercentage;
@@ -58,6 +66,16 @@ public class EveConfig {
         private double minMarginPercentage;
         private boolean excludeStationTrading;
         private int minDailyTrades;
+        private int maxConcurrentRequests = 10;
+
+        // How a scan fetches orders: auto, full (whole region) or targeted (one request per candidate type)
+        private String fetchStrategy = "auto";
+        // Cost of one targeted type request relative to one full region page, used by the auto strategy
+        private double targetedRequestWeight = 0.25;
+
+        // Budget and ROI grid answered by every scan next to the configured investment and ROI
+        private List<Double> sweepBudgetsMillions = List.of(100.0, 250.0, 500.0, 1000.0);
+        private List<Double> sweepRoiPercentages = List.of(10.0, 25.0, 50.0);
 
         // Historical data filters (region-specific)
         private long minVolumeMonth;
@@ -109,6 +127,21 @@ public class EveConfig {
         public int getMinDailyTrades() { return minDailyTrades; }
         public void setMinDailyTrades(int minDailyTrades) { this.minDailyTrades = minDailyTrades; }
 
+        public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+
+        public String getFetchStrategy() { return fetchStrategy; }
+        public void setFetchStrategy(String fetchStrategy) { this.fetchStrategy = fetchStrategy; }
+
+        public double getTargetedRequestWeight() { return targetedRequestWeight; }
+        public void setTargetedRequestWeight(double targetedRequestWeight) { this.targetedRequestWeight = targetedRequestWeight; }
+
+        public List<Double> getSweepBudgetsMillions() { return sweepBudgetsMillions; }
+        public void setSweepBudgetsMillions(List<Double> sweepBudgetsMillions) { this.sweepBudgetsMillions = sweepBudgetsMillions; }
+
+        public List<Double> getSweepRoiPercentages() { return sweepRoiPercentages; }
+        public void setSweepRoiPercentages(List<Double> sweepRoiPercentages) { this.sweepRoiPercentages = sweepRoiPercentages; }
+
         public long getMinVolumeMonth() { return minVolumeMonth; }
         public void setMinVolumeMonth(long minVolumeMonth) { this.minVolumeMonth = minVolumeMonth; }
 
@@ -201,22 +234,115 @@ public class EveConfig {
     public static class Esi {
         private String baseUrl;
         private String userAgent;
+        private int maxConcurrentPages = 20;
+        private int minConcurrentRequests = 2;
+        private int initialConcurrentRequests = 20;
+        private int maxConcurrentRequests = 50;
+        private long latencyTargetMs = 1500;
+        private int errorLimitThreshold = 20;
+        private int pageRetries = 3;
+        private long retryBackoffMs = 500;
+        private int pageTimeoutSeconds = 30;
+        private double hedgePercentile = 0.95;
 
         public String getBaseUrl() { return baseUrl; }
         public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
 
         public String getUserAgent() { return userAgent; }
         public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
+
+        public int getMaxConcurrentPages() { return maxConcurrentPages; }
+        public void setMaxConcurrentPages(int maxConcurrentPages) { this.maxConcurrentPages = maxConcurrentPages; }
+
+        public int getMinConcurrentRequests() { return minConcurrentRequests; }
+        public void setMinConcurrentRequests(int minConcurrentRequests) { this.minConcurrentRequests = minConcurrentRequests; }
+
+        public int getInitialConcurrentRequests() { return initialConcurrentRequests; }
+        public void setInitialConcurrentRequests(int initialConcurrentRequests) { this.initialConcurrentRequests = initialConcurrentRequests; }
+
+        public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+
+        public long getLatencyTargetMs() { return latencyTargetMs; }
+        public void setLatencyTargetMs(long latencyTargetMs) { this.latencyTargetMs = latencyTargetMs; }
+
+        public int getErrorLimitThreshold() { return errorLimitThreshold; }
+        public void setErrorLimitThreshold(int errorLimitThreshold) { this.errorLimitThreshold = errorLimitThreshold; }
+
+        public int getPageRetries() { return pageRetries; }
+        public void setPageRetries(int pageRetries) { this.pageRetries = pageRetries; }
+
+        public long getRetryBackoffMs() { return retryBackoffMs; }
+        public void setRetryBackoffMs(long retryBackoffMs) { this.retryBackoffMs = retryBackoffMs; }
+
+        public int getPageTimeoutSeconds() { return pageTimeoutSeconds; }
+        public void setPageTimeoutSeconds(int pageTimeoutSeconds) { this.pageTimeoutSeconds = pageTimeoutSeconds; }
+
+        public double getHedgePercentile() { return hedgePercentile; }
+        public void setHedgePercentile(double hedgePercentile) { this.hedgePercentile = hedgePercentile; }
     }
 
     public static class Mokaam {
         private String baseUrl;
         private String userAgent;
+        // Statistics rows parsed from the response stream before they are written as one JDBC batch and commit
+        private int importChunkSize = 1000;
+        // Parsed chunks allowed to wait for the writer before parsing pauses
+        private int writeQueueChunks = 4;
+        // Regions imported at the same time by an import of all regions
+        private int importConcurrency = 2;
 
         public String getBaseUrl() { return baseUrl; }
         public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
 
         public String getUserAgent() { return userAgent; }
         public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
+
+        public int getImportChunkSize() { return importChunkSize; }
+        public void setImportChunkSize(int importChunkSize) { this.importChunkSize = importChunkSize; }
+
+        public int getWriteQueueChunks() { return writeQueueChunks; }
+        public void setWriteQueueChunks(int writeQueueChunks) { this.writeQueueChunks = writeQueueChunks; }
+
+        public int getImportConcurrency() { return importConcurrency; }
+        public void setImportConcurrency(int importConcurrency) { this.importConcurrency = importConcurrency; }
+    }
+
+    public static class Jobs {
+        private int maxConcurrentJobs = 2;
+        private int queueCapacity = 20;
+        private int retainedJobs = 50;
+        private int scanMemoryBudgetMb = 256;
+        private int pageMemoryEstimateKb = 1024;
+
+        public int getMaxConcurrentJobs() { return maxConcurrentJobs; }
+        public void setMaxConcurrentJobs(int maxConcurrentJobs) { this.maxConcurrentJobs = maxConcurrentJobs; }
+
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+        public int getRetainedJobs() { return retainedJobs; }
+        public void setRetainedJobs(int retainedJobs) { this.retainedJobs = retainedJobs; }
+
+        public int getScanMemoryBudgetMb() { return scanMemoryBudgetMb; }
+        public void setScanMemoryBudgetMb(int scanMemoryBudgetMb) { this.scanMemoryBudgetMb = scanMemoryBudgetMb; }
+
+        public int getPageMemoryEstimateKb() { return pageMemoryEstimateKb; }
+        public void setPageMemoryEstimateKb(int pageMemoryEstimateKb) { this.pageMemoryEstimateKb = pageMemoryEstimateKb; }
+    }
+
+    public static class Monitor {
+        private boolean enabled = false;
+        private int minIntervalSeconds = 60;
+        private int errorRetrySeconds = 60;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMinIntervalSeconds() { return minIntervalSeconds; }
+        public void setMinIntervalSeconds(int minIntervalSeconds) { this.minIntervalSeconds = minIntervalSeconds; }
+
+        public int getErrorRetrySeconds() { return errorRetrySeconds; }
+        public void setErrorRetrySeconds(int errorRetrySeconds) { this.errorRetrySeconds = errorRetrySeconds; }
     }
 }
@@ -0,0 +1,165 @@
+package com.eve.dominator.controller;
+
+import com.eve.dominator.model.LiveMarketView;
+import com.eve.dominator.model.MarketAnalysisResult;
+import com.eve.dominator.model.ScanJob;
+import com.eve.dominator.service.MarketMonitorService;
+import com.eve.dominator.service.ScanJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * JSON endpoints for background jobs: submitting scans and imports returns a job id
+ * immediately, and the job endpoints report phase, progress and, once finished, the result.
+ * Scans can also be streamed over server-sent events as opportunities are found.
+ */
+@RestController
+@RequestMapping("/api")
+public class MarketApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketApiController.class);
+
+    private static final int MAX_TOP_N = 100;
+
+    private final ScanJobService scanJobService;
+    private final MarketMonitorService marketMonitorService;
+
+    @Autowired
+    public MarketApiController(ScanJobService scanJobService, MarketMonitorService marketMonitorService) {
+        this.scanJobService = scanJobService;
+        this.marketMonitorService = marketMonitorService;
+    }
+
+    /**
+     * Streams a monopoly scan: an "opportunity" event for every result as soon as its type is solved,
+     * followed by a "top" event with the current best results by ROI, and a final "complete" event.
+     */
+    @GetMapping(value = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamAnalysis(@RequestParam Long regionId,
+                                                        @RequestParam(defaultValue = "10") int top) {
+        logger.info("Streaming monopoly scan requested for region: {}", regionId);
+        int limit = Math.max(1, Math.min(MAX_TOP_N, top));
+
+        return Flux.defer(() -> {
+            RunningTopN ranking = new RunningTopN(limit);
+            return scanJobService.streamMonopolyScan(regionId)
+                    .concatMap(result -> Flux.just(
+                            event("opportunity", result),
+                            event("top", ranking.offer(result))))
+                    .concatWith(Mono.fromSupplier(() -> event("complete",
+                            Map.of("regionId", regionId, "opportunities", ranking.seen()))))
+                    .onErrorResume(error -> {
+                        logger.error("Streaming monopoly scan failed for region {}: ", regionId, error);
+                        return Mono.just(event("error", Map.of("error", String.valueOf(error.getMessage()))));
+                    });
+        });
+    }
+
+    @PostMapping("/scans")
+    public ResponseEntity<Map<String, String>> submitScan(@RequestParam Long regionId) {
+        logger.info("Monopoly scan job requested for region: {}", regionId);
+        return submit(() -> scanJobService.submitMonopolyScan(regionId));
+    }
+
+    @PostMapping("/imports")
+    public ResponseEntity<Map<String, String>> submitImport(@RequestParam Long regionId) {
+        logger.info("Mokaam import job requested for region: {}", regionId);
+        return submit(() -> scanJobService.submitImport(regionId));
+    }
+
+    @PostMapping("/imports/all")
+    public ResponseEntity<Map<String, String>> submitImportAll() {
+        logger.info("Mokaam import job requested for ALL regions");
+        return submit(scanJobService::submitImportAll);
+    }
+
+    @GetMapping("/jobs")
+    public List<ScanJob> listJobs() {
+        return scanJobService.getJobs();
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ScanJob> getJob(@PathVariable String jobId) {
+        return scanJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/monitor")
+    public Collection<LiveMarketView> listMonitoredRegions() {
+        return marketMonitorService.getViews();
+    }
+
+    @GetMapping("/monitor/{regionId}")
+    public ResponseEntity<LiveMarketView> getMonitoredRegion(@PathVariable Long regionId) {
+        return marketMonitorService.getView(regionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+
+    /**
+     * The best results seen so far by ROI, kept in a min-heap so each new result costs O(log n).
+     */
+    private static final class RunningTopN {
+        private final int limit;
+        private final PriorityQueue<MarketAnalysisResult> heap =
+                new PriorityQueue<>(Comparator.comparingDouble(MarketAnalysisResult::getRoiPercentage));
+        private int seen;
+
+        RunningTopN(int limit) {
+            this.limit = limit;
+        }
+
+        List<MarketAnalysisResult> offer(MarketAnalysisResult result) {
+            seen++;
+            heap.offer(result);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+            List<MarketAnalysisResult> ranking = new ArrayList<>(heap);
+            ranking.sort(Comparator.comparingDouble(MarketAnalysisResult::getRoiPercentage).reversed());
+            return ranking;
+        }
+
+        int seen() {
+            return seen;
+        }
+    }
+
+    private ResponseEntity<Map<String, String>> submit(Supplier<ScanJob> submission) {
+        try {
+            ScanJob job = submission.get();
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of("jobId", job.getId(), "status", "/api/jobs/" + job.getId()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Too many jobs are queued, please try again later"));
+        }
+    }
+}
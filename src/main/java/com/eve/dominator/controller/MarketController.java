@@ -2,12 +2,13 @@ package com.eve.dominator.controller;
 
 import com.eve.dominator.config.EveConfig;
 import com.eve.dominator.model.ItemName;
-import com.eve.dominator.model.MarketAnalysisResult;
 import com.eve.dominator.model.MarketStatistics;
+import com.eve.dominator.model.MonopolyScanResult;
+import com.eve.dominator.model.ScanJob;
 import com.eve.dominator.model.TradehubComparisonResult;
 import com.eve.dominator.service.ItemNameService;
-import com.eve.dominator.service.MarketAnalysisService;
 import com.eve.dominator.service.MokaamService;
+import com.eve.dominator.service.ScanJobService;
 import com.eve.dominator.service.TradehubAnalysisService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,31 +20,34 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 public class MarketController {
 
     private static final Logger logger = LoggerFactory.getLogger(MarketController.class);
 
-    private final MarketAnalysisService marketAnalysisService;
     private final MokaamService mokaamService;
     private final EveConfig eveConfig;
     private final ItemNameService itemNameService;
     private final TradehubAnalysisService tradehubAnalysisService;
+    private final ScanJobService scanJobService;
 
     @Autowired
-    public MarketController(MarketAnalysisService marketAnalysisService, MokaamService mokaamService, EveConfig eveConfig, ItemNameService itemNameService, TradehubAnalysisService tradehubAnalysisService) {
-        this.marketAnalysisService = marketAnalysisService;
+    public MarketController(MokaamService mokaamService, EveConfig eveConfig, ItemNameService itemNameService,
+                            TradehubAnalysisService tradehubAnalysisService, ScanJobService scanJobService) {
         this.mokaamService = mokaamService;
         this.eveConfig = eveConfig;
         this.itemNameService = itemNameService;
         this.tradehubAnalysisService = tradehubAnalysisService;
+        this.scanJobService = scanJobService;
         logger.info("MarketController initialized with config: {}", eveConfig);
     }
 
@@ -126,8 +130,7 @@ public class MarketController {
             for (ItemName item : items) {
                 boolean hasData = false;
                 for (Long regionId : eveConfig.getImportRegions()) {
-                    MarketStatistics stats = mokaamService.getLatestStatisticsForItem(item.getTypeId(), regionId);
-                    if (stats != null) {
+                    if (mokaamService.hasLatestStatistics(item.getTypeId(), regionId)) {
                         hasData = true;
                         break; // Found data in at least one region
                     }
@@ -156,20 +159,42 @@ public class MarketController {
         logger.info("Monopoly scan requested for region: {}", regionId);
 
         try {
-            List<MarketAnalysisResult> results = marketAnalysisService.analyzeMarkets(regionId).block();
-            logger.info("Analysis completed. Found {} opportunities", results != null ? results.size() : 0);
-
-            model.addAttribute("results", results);
-            model.addAttribute("regionId", regionId);
-            model.addAttribute("regionName", getRegionName(regionId));
-            model.addAttribute("analysisTime", java.time.LocalDateTime.now());
+            ScanJob job = scanJobService.submitMonopolyScan(regionId);
+            return "redirect:/analyze/" + job.getId();
+        } catch (RejectedExecutionException e) {
+            model.addAttribute("error", "Too many scans are queued, please try again later.");
+            return "error";
+        }
+    }
 
-            return "results";
-        } catch (Exception e) {
-            logger.error("Failed to analyze market for region {}: ", regionId, e);
-            model.addAttribute("error", "Failed to analyze market: " + e.getMessage());
+    @GetMapping("/analyze/{jobId}")
+    public String analyzeMarketResult(@PathVariable String jobId, Model model) {
+        ScanJob job = scanJobService.getJob(jobId).orElse(null);
+        if (job == null) {
+            model.addAttribute("error", "Scan job " + jobId + " was not found or has expired.");
+            return "error";
+        }
+        if (job.getStatus() == ScanJob.Status.FAILED) {
+            model.addAttribute("error", "Failed to analyze market: " + job.getError());
             return "error";
         }
+        if (job.getStatus() != ScanJob.Status.COMPLETED) {
+            model.addAttribute("job", job);
+            model.addAttribute("backUrl", "/monopoly");
+            return "job-status";
+        }
+
+        MonopolyScanResult scan = (MonopolyScanResult) job.getResult();
+        logger.info("Analysis completed. Found {} opportunities", scan != null ? scan.getResults().size() : 0);
+
+        model.addAttribute("results", scan != null ? scan.getResults() : null);
+        model.addAttribute("sweep", scan != null ? scan.getSweep() : null);
+        model.addAttribute("summary", scan != null ? scan.getSummary() : null);
+        model.addAttribute("regionId", job.getRegionId());
+        model.addAttribute("regionName", getRegionName(job.getRegionId()));
+        model.addAttribute("analysisTime", LocalDateTime.ofInstant(job.getFinishedAt(), ZoneId.systemDefault()));
+
+        return "results";
     }
 
     @PostMapping("/import-mokaam")
@@ -177,25 +202,10 @@ public class MarketController {
         logger.info("Mokaam data import requested for region: {}", regionId);
 
         try {
-            String result = mokaamService.importHistoricalData(regionId).block();
-            logger.info("Mokaam import completed: {}", result);
-
-            model.addAttribute("message", result);
-            model.addAttribute("importRegions", eveConfig.getImportRegions());
-
-            // Refresh statistics count and last refresh date for import regions
-            for (Long regId : eveConfig.getImportRegions()) {
-                long count = mokaamService.getStatisticsCount(regId);
-                model.addAttribute("statsCount_" + regId, count);
-
-                java.time.LocalDate lastRefresh = mokaamService.getLastRefreshDate(regId);
-                model.addAttribute("lastRefresh_" + regId, lastRefresh);
-            }
-
-            return "market-data-manage";
-        } catch (Exception e) {
-            logger.error("Failed to import Mokaam data for region {}: ", regionId, e);
-            model.addAttribute("error", "Failed to import Mokaam data: " + e.getMessage());
+            ScanJob job = scanJobService.submitImport(regionId);
+            return "redirect:/jobs/" + job.getId();
+        } catch (RejectedExecutionException e) {
+            model.addAttribute("error", "Too many jobs are queued, please try again later.");
             return "error";
         }
     }
@@ -205,34 +215,28 @@ public class MarketController {
         logger.info("Mokaam data import requested for ALL regions");
 
         try {
-            List<String> results = new ArrayList<>();
-            
-            for (Long regionId : eveConfig.getImportRegions()) {
-                logger.info("Starting import for region: {}", regionId);
-                String result = mokaamService.importHistoricalData(regionId).block();
-                results.add(getRegionName(regionId) + ": " + result);
-                logger.info("Completed import for region {}: {}", regionId, result);
-            }
-
-            String combinedMessage = "All regions imported successfully:\n" + String.join("\n", results);
-            model.addAttribute("message", combinedMessage);
-            model.addAttribute("importRegions", eveConfig.getImportRegions());
-
-            // Refresh statistics count and last refresh date for all import regions
-            for (Long regId : eveConfig.getImportRegions()) {
-                long count = mokaamService.getStatisticsCount(regId);
-                model.addAttribute("statsCount_" + regId, count);
-
-                java.time.LocalDate lastRefresh = mokaamService.getLastRefreshDate(regId);
-                model.addAttribute("lastRefresh_" + regId, lastRefresh);
-            }
+            ScanJob job = scanJobService.submitImportAll();
+            return "redirect:/jobs/" + job.getId();
+        } catch (RejectedExecutionException e) {
+            model.addAttribute("error", "Too many jobs are queued, please try again later.");
+            return "error";
+        }
+    }
 
-            return "market-data-manage";
-        } catch (Exception e) {
-            logger.error("Failed to import Mokaam data for all regions: ", e);
-            model.addAttribute("error", "Failed to import Mokaam data for all regions: " + e.getMessage());
-            return "market-data-manage";
+    @GetMapping("/jobs/{jobId}")
+    public String jobStatus(@PathVariable String jobId, Model model) {
+        ScanJob job = scanJobService.getJob(jobId).orElse(null);
+        if (job == null) {
+            model.addAttribute("error", "Job " + jobId + " was not found or has expired.");
+            return "error";
         }
+        if (job.getType() == ScanJob.Type.MONOPOLY_SCAN) {
+            return "redirect:/analyze/" + jobId;
+        }
+
+        model.addAttribute("job", job);
+        model.addAttribute("backUrl", "/market-data/manage");
+        return "job-status";
     }
 
     @GetMapping("/market-data/item/{typeId}")
@@ -0,0 +1,33 @@
+package com.eve.dominator.model;
+
+/**
+ * One cell of the budget and ROI sweep of a monopoly scan: how many types could be
+ * dominated within the budget at the required ROI, and the best of them.
+ */
+public class BudgetSweepCell {
+
+    private final double budgetMillions;
+    private final double roiPercentage;
+    private int opportunities;
+    private double totalProfit;
+    private MarketAnalysisResult best;
+
+    public BudgetSweepCell(double budgetMillions, double roiPercentage) {
+        this.budgetMillions = budgetMillions;
+        this.roiPercentage = roiPercentage;
+    }
+
+    public void add(MarketAnalysisResult opportunity) {
+        opportunities++;
+        totalProfit += opportunity.getTotalProfit();
+        if (best == null || opportunity.getRoiPercentage() > best.getRoiPercentage()) {
+            best = opportunity;
+        }
+    }
+
+    public double getBudgetMillions() { return budgetMillions; }
+    public double getRoiPercentage() { return roiPercentage; }
+    public int getOpportunities() { return opportunities; }
+    public double getTotalProfit() { return totalProfit; }
+    public MarketAnalysisResult getBest() { return best; }
+}
@@ -0,0 +1,154 @@
+package com.eve.dominator.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Latest MarketStatistics row of each type, per region and published dataset version, rebuilt
+ * whenever an import publishes a version. Holds a pointer to the full row plus the VWAP, volume
+ * and average price columns the scanners filter on, so latest-row reads are primary key lookups
+ * and the VWAP and volume predicates are answered from covering indexes.
+ */
+@Entity
+@IdClass(LatestMarketStatistics.Key.class)
+@Table(name = "latest_market_statistics", indexes = {
+        @Index(name = "idx_latest_stats_vwap_week", columnList = "region_id, dataset_version, vwap_week, vol_week, type_id"),
+        @Index(name = "idx_latest_stats_vwap_month", columnList = "region_id, dataset_version, vwap_month, vol_month, type_id"),
+        @Index(name = "idx_latest_stats_vwap_quarter", columnList = "region_id, dataset_version, vwap_quarter, vol_quarter, type_id"),
+        @Index(name = "idx_latest_stats_vwap_year", columnList = "region_id, dataset_version, vwap_year, vol_year, type_id")
+})
+public class LatestMarketStatistics {
+
+    @Id
+    @Column(name = "region_id")
+    private Long regionId;
+
+    @Id
+    @Column(name = "dataset_version")
+    private Long datasetVersion;
+
+    @Id
+    @Column(name = "type_id")
+    private Integer typeId;
+
+    @Column(name = "statistics_id", nullable = false)
+    private Long statisticsId;
+
+    @Column(name = "date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "vwap_week")
+    private Double vwapWeek;
+
+    @Column(name = "vol_week")
+    private Long volumeWeek;
+
+    @Column(name = "vwap_month")
+    private Double vwapMonth;
+
+    @Column(name = "vol_month")
+    private Long volumeMonth;
+
+    @Column(name = "avg_price_month")
+    private Double averagePriceMonth;
+
+    @Column(name = "vwap_quarter")
+    private Double vwapQuarter;
+
+    @Column(name = "vol_quarter")
+    private Long volumeQuarter;
+
+    @Column(name = "avg_price_quarter")
+    private Double averagePriceQuarter;
+
+    @Column(name = "vwap_year")
+    private Double vwapYear;
+
+    @Column(name = "vol_year")
+    private Long volumeYear;
+
+    @Column(name = "avg_price_year")
+    private Double averagePriceYear;
+
+    // Constructors
+    public LatestMarketStatistics() {}
+
+    // Getters and setters
+    public Long getRegionId() { return regionId; }
+    public void setRegionId(Long regionId) { this.regionId = regionId; }
+
+    public Long getDatasetVersion() { return datasetVersion; }
+    public void setDatasetVersion(Long datasetVersion) { this.datasetVersion = datasetVersion; }
+
+    public Integer getTypeId() { return typeId; }
+    public void setTypeId(Integer typeId) { this.typeId = typeId; }
+
+    public Long getStatisticsId() { return statisticsId; }
+    public void setStatisticsId(Long statisticsId) { this.statisticsId = statisticsId; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public Double getVwapWeek() { return vwapWeek; }
+    public void setVwapWeek(Double vwapWeek) { this.vwapWeek = vwapWeek; }
+
+    public Long getVolumeWeek() { return volumeWeek; }
+    public void setVolumeWeek(Long volumeWeek) { this.volumeWeek = volumeWeek; }
+
+    public Double getVwapMonth() { return vwapMonth; }
+    public void setVwapMonth(Double vwapMonth) { this.vwapMonth = vwapMonth; }
+
+    public Long getVolumeMonth() { return volumeMonth; }
+    public void setVolumeMonth(Long volumeMonth) { this.volumeMonth = volumeMonth; }
+
+    public Double getAveragePriceMonth() { return averagePriceMonth; }
+    public void setAveragePriceMonth(Double averagePriceMonth) { this.averagePriceMonth = averagePriceMonth; }
+
+    public Double getVwapQuarter() { return vwapQuarter; }
+    public void setVwapQuarter(Double vwapQuarter) { this.vwapQuarter = vwapQuarter; }
+
+    public Long getVolumeQuarter() { return volumeQuarter; }
+    public void setVolumeQuarter(Long volumeQuarter) { this.volumeQuarter = volumeQuarter; }
+
+    public Double getAveragePriceQuarter() { return averagePriceQuarter; }
+    public void setAveragePriceQuarter(Double averagePriceQuarter) { this.averagePriceQuarter = averagePriceQuarter; }
+
+    public Double getVwapYear() { return vwapYear; }
+    public void setVwapYear(Double vwapYear) { this.vwapYear = vwapYear; }
+
+    public Long getVolumeYear() { return volumeYear; }
+    public void setVolumeYear(Long volumeYear) { this.volumeYear = volumeYear; }
+
+    public Double getAveragePriceYear() { return averagePriceYear; }
+    public void setAveragePriceYear(Double averagePriceYear) { this.averagePriceYear = averagePriceYear; }
+
+    public static class Key implements Serializable {
+        private Long regionId;
+        private Long datasetVersion;
+        private Integer typeId;
+
+        public Key() {}
+
+        public Key(Long regionId, Long datasetVersion, Integer typeId) {
+            this.regionId = regionId;
+            this.datasetVersion = datasetVersion;
+            this.typeId = typeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(regionId, key.regionId) && Objects.equals(datasetVersion, key.datasetVersion)
+                    && Objects.equals(typeId, key.typeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(regionId, datasetVersion, typeId);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.eve.dominator.model;
+
+/**
+ * Projection of a latest_market_statistics entry with the columns the statistics cache keeps:
+ * the VWAP and volume the tradehub scanner compares and the average prices the monopoly
+ * market size prefilter needs.
+ */
+public interface LatestStatisticsView {
+
+    Integer getTypeId();
+    Long getStatisticsId();
+
+    Double getVwapWeek();
+    Long getVolumeWeek();
+
+    Double getVwapMonth();
+    Long getVolumeMonth();
+    Double getAveragePriceMonth();
+
+    Double getVwapQuarter();
+    Long getVolumeQuarter();
+    Double getAveragePriceQuarter();
+
+    Double getVwapYear();
+    Long getVolumeYear();
+    Double getAveragePriceYear();
+}
@@ -0,0 +1,63 @@
+package com.eve.dominator.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable view of a monitored region: the current opportunities sorted by ROI and what the
+ * last poll changed. The monitor replaces the whole view after every poll, so readers never
+ * see a half-updated table.
+ */
+public class LiveMarketView {
+
+    private final long regionId;
+    private final long stationId;
+    private final List<MarketAnalysisResult> opportunities;
+    private final int stationSellOrders;
+    private final int changedTypes;
+    private final int reanalyzedTypes;
+    private final int addedOrders;
+    private final int removedOrders;
+    private final int modifiedOrders;
+    private final Instant lastPoll;
+    private final Instant nextPoll;
+    private final String error;
+
+    public LiveMarketView(long regionId, long stationId, List<MarketAnalysisResult> opportunities, int stationSellOrders,
+                          int changedTypes, int reanalyzedTypes, int addedOrders, int removedOrders, int modifiedOrders,
+                          Instant lastPoll, Instant nextPoll, String error) {
+        this.regionId = regionId;
+        this.stationId = stationId;
+        this.opportunities = List.copyOf(opportunities);
+        this.stationSellOrders = stationSellOrders;
+        this.changedTypes = changedTypes;
+        this.reanalyzedTypes = reanalyzedTypes;
+        this.addedOrders = addedOrders;
+        this.removedOrders = removedOrders;
+        this.modifiedOrders = modifiedOrders;
+        this.lastPoll = lastPoll;
+        this.nextPoll = nextPoll;
+        this.error = error;
+    }
+
+    /**
+     * @return the same view after a failed poll: the previous table with the error and the retry time
+     */
+    public LiveMarketView withError(String error, Instant nextPoll) {
+        return new LiveMarketView(regionId, stationId, opportunities, stationSellOrders, changedTypes, reanalyzedTypes,
+                addedOrders, removedOrders, modifiedOrders, lastPoll, nextPoll, error);
+    }
+
+    public long getRegionId() { return regionId; }
+    public long getStationId() { return stationId; }
+    public List<MarketAnalysisResult> getOpportunities() { return opportunities; }
+    public int getStationSellOrders() { return stationSellOrders; }
+    public int getChangedTypes() { return changedTypes; }
+    public int getReanalyzedTypes() { return reanalyzedTypes; }
+    public int getAddedOrders() { return addedOrders; }
+    public int getRemovedOrders() { return removedOrders; }
+    public int getModifiedOrders() { return modifiedOrders; }
+    public Instant getLastPoll() { return lastPoll; }
+    public Instant getNextPoll() { return nextPoll; }
+    public String getError() { return error; }
+}
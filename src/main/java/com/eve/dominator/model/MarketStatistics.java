@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "market_statistics")
+@Table(name = "market_statistics",
+       indexes = @Index(name = "idx_market_statistics_region_type_date", columnList = "region_id, type_id, date"))
 public class MarketStatistics {
 
     @Id
@@ -159,6 +160,13 @@ public class MarketStatistics {
     @Column(name = "size_year")
     private Double sizeYear;
 
+    // Dataset versions (per region) in which this row is visible: from valid_from up to, but excluding, valid_to
+    @Column(name = "valid_from", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private Long validFrom = 0L;
+
+    @Column(name = "valid_to")
+    private Long validTo;
+
     // Constructors
     public MarketStatistics() {}
 
@@ -312,4 +320,10 @@ public class MarketStatistics {
 
     public Double getSizeYear() { return sizeYear; }
     public void setSizeYear(Double sizeYear) { this.sizeYear = sizeYear; }
+
+    public Long getValidFrom() { return validFrom; }
+    public void setValidFrom(Long validFrom) { this.validFrom = validFrom; }
+
+    public Long getValidTo() { return validTo; }
+    public void setValidTo(Long validTo) { this.validTo = validTo; }
 }
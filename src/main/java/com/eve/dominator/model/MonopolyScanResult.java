@@ -0,0 +1,24 @@
+package com.eve.dominator.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a monopoly scan: the opportunities sorted by ROI, the budget and ROI sweep
+ * answered from the same order books, and the summary of the order snapshot.
+ */
+public class MonopolyScanResult {
+
+    private final List<MarketAnalysisResult> results;
+    private final List<BudgetSweepCell> sweep;
+    private final ScanSummary summary;
+
+    public MonopolyScanResult(List<MarketAnalysisResult> results, List<BudgetSweepCell> sweep, ScanSummary summary) {
+        this.results = results;
+        this.sweep = sweep;
+        this.summary = summary;
+    }
+
+    public List<MarketAnalysisResult> getResults() { return results; }
+    public List<BudgetSweepCell> getSweep() { return sweep; }
+    public ScanSummary getSummary() { return summary; }
+}
@@ -0,0 +1,263 @@
+package com.eve.dominator.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar snapshot of market orders. Every order is a row spread over parallel
+ * primitive arrays, and rows are grouped by typeId so that all orders of one type
+ * occupy the contiguous range [typeStart(i), typeEnd(i)).
+ * <p>
+ * Besides its rows, a book remembers how many orders were scanned to produce it and how
+ * the scanned sell orders were spread over locations, including orders that a filter
+ * rejected while decoding.
+ */
+public final class OrderBook {
+
+    public static final byte FLAG_BUY_ORDER = 1;
+
+    // Heap bytes of one row over all columns (orderId, typeId, locationId, price, volumeRemain, duration, issued, flags)
+    public static final int BYTES_PER_ROW = 8 + 4 + 8 + 8 + 4 + 4 + 8 + 1;
+
+    public static final int UNKNOWN_DURATION = -1;
+    public static final long UNKNOWN_ISSUED = -1L;
+
+    private static final OrderBook EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final long[] orderIds;
+    private final int[] typeIds;
+    private final long[] locationIds;
+    private final double[] prices;
+    private final int[] volumeRemain;
+    private final int[] durations;
+    private final long[] issued;
+    private final byte[] flags;
+
+    // Per-type offset index: rows of distinctTypeIds[i] are [typeOffsets[i], typeOffsets[i + 1])
+    private final int[] distinctTypeIds;
+    private final int[] typeOffsets;
+
+    private final int scannedOrders;
+    private final Map<Long, Integer> scannedSellOrdersByLocation;
+
+    private OrderBook(int size, long[] orderIds, int[] typeIds, long[] locationIds, double[] prices,
+                      int[] volumeRemain, int[] durations, long[] issued, byte[] flags,
+                      int scannedOrders, Map<Long, Integer> scannedSellOrdersByLocation) {
+        this.size = size;
+        this.scannedOrders = scannedOrders;
+        this.scannedSellOrdersByLocation = Collections.unmodifiableMap(scannedSellOrdersByLocation);
+        this.orderIds = orderIds;
+        this.typeIds = typeIds;
+        this.locationIds = locationIds;
+        this.prices = prices;
+        this.volumeRemain = volumeRemain;
+        this.durations = durations;
+        this.issued = issued;
+        this.flags = flags;
+
+        int distinct = 0;
+        for (int row = 0; row < size; row++) {
+            if (row == 0 || typeIds[row] != typeIds[row - 1]) {
+                distinct++;
+            }
+        }
+        this.distinctTypeIds = new int[distinct];
+        this.typeOffsets = new int[distinct + 1];
+        int typeIndex = -1;
+        for (int row = 0; row < size; row++) {
+            if (row == 0 || typeIds[row] != typeIds[row - 1]) {
+                typeIndex++;
+                distinctTypeIds[typeIndex] = typeIds[row];
+                typeOffsets[typeIndex] = row;
+            }
+        }
+        typeOffsets[distinct] = size;
+    }
+
+    public static OrderBook empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    // Row accessors
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public long orderId(int row) { return orderIds[row]; }
+    public int typeId(int row) { return typeIds[row]; }
+    public long locationId(int row) { return locationIds[row]; }
+    public double price(int row) { return prices[row]; }
+    public int volumeRemain(int row) { return volumeRemain[row]; }
+    public int duration(int row) { return durations[row]; }
+    public long issuedEpochSecond(int row) { return issued[row]; }
+    public boolean isBuyOrder(int row) { return (flags[row] & FLAG_BUY_ORDER) != 0; }
+
+    /**
+     * @return number of orders seen while decoding, including orders rejected by the decode filter
+     */
+    public int scannedOrders() { return scannedOrders; }
+
+    /**
+     * @return sell order counts per location over all scanned orders, including rejected ones
+     */
+    public Map<Long, Integer> scannedSellOrdersByLocation() { return scannedSellOrdersByLocation; }
+
+    // Per-type index accessors
+    public int typeCount() { return distinctTypeIds.length; }
+    public int typeIdAt(int typeIndex) { return distinctTypeIds[typeIndex]; }
+    public int typeStart(int typeIndex) { return typeOffsets[typeIndex]; }
+    public int typeEnd(int typeIndex) { return typeOffsets[typeIndex + 1]; }
+
+    /**
+     * @return the type index of the given typeId, or a negative value if the book has no orders for it
+     */
+    public int indexOfType(int typeId) {
+        return Arrays.binarySearch(distinctTypeIds, typeId);
+    }
+
+    /**
+     * Growable column buffers used while decoding pages. build() groups the rows by typeId.
+     */
+    public static final class Builder {
+
+        private int size;
+        private long[] orderIds;
+        private int[] typeIds;
+        private long[] locationIds;
+        private double[] prices;
+        private int[] volumeRemain;
+        private int[] durations;
+        private long[] issued;
+        private byte[] flags;
+
+        private int scannedOrders;
+        private final Map<Long, Integer> scannedSellOrdersByLocation = new HashMap<>();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            orderIds = new long[capacity];
+            typeIds = new int[capacity];
+            locationIds = new long[capacity];
+            prices = new double[capacity];
+            volumeRemain = new int[capacity];
+            durations = new int[capacity];
+            issued = new long[capacity];
+            flags = new byte[capacity];
+        }
+
+        public int size() { return size; }
+
+        /**
+         * Records an order seen by the decoder, whether or not it is added as a row.
+         */
+        public Builder noteScanned(long locationId, boolean buyOrder) {
+            scannedOrders++;
+            if (!buyOrder) {
+                scannedSellOrdersByLocation.merge(locationId, 1, Integer::sum);
+            }
+            return this;
+        }
+
+        public Builder add(long orderId, int typeId, long locationId, double price, int volume,
+                           int duration, long issuedEpochSecond, boolean buyOrder) {
+            ensureCapacity(size + 1);
+            orderIds[size] = orderId;
+            typeIds[size] = typeId;
+            locationIds[size] = locationId;
+            prices[size] = price;
+            volumeRemain[size] = volume;
+            durations[size] = duration;
+            issued[size] = issuedEpochSecond;
+            flags[size] = buyOrder ? FLAG_BUY_ORDER : 0;
+            size++;
+            return this;
+        }
+
+        public Builder addAll(OrderBook source) {
+            ensureCapacity(size + source.size);
+            System.arraycopy(source.orderIds, 0, orderIds, size, source.size);
+            System.arraycopy(source.typeIds, 0, typeIds, size, source.size);
+            System.arraycopy(source.locationIds, 0, locationIds, size, source.size);
+            System.arraycopy(source.prices, 0, prices, size, source.size);
+            System.arraycopy(source.volumeRemain, 0, volumeRemain, size, source.size);
+            System.arraycopy(source.durations, 0, durations, size, source.size);
+            System.arraycopy(source.issued, 0, issued, size, source.size);
+            System.arraycopy(source.flags, 0, flags, size, source.size);
+            size += source.size;
+            scannedOrders += source.scannedOrders;
+            source.scannedSellOrdersByLocation.forEach((locationId, count) ->
+                    scannedSellOrdersByLocation.merge(locationId, count, Integer::sum));
+            return this;
+        }
+
+        public OrderBook build() {
+            if (isGroupedByType()) {
+                return new OrderBook(size, Arrays.copyOf(orderIds, size), Arrays.copyOf(typeIds, size),
+                        Arrays.copyOf(locationIds, size), Arrays.copyOf(prices, size),
+                        Arrays.copyOf(volumeRemain, size), Arrays.copyOf(durations, size),
+                        Arrays.copyOf(issued, size), Arrays.copyOf(flags, size),
+                        scannedOrders, new HashMap<>(scannedSellOrdersByLocation));
+            }
+
+            // Sort (typeId, row) keys so rows of a type stay in arrival order, then permute every column
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = ((long) typeIds[row] << 32) | row;
+            }
+            Arrays.sort(keys);
+
+            long[] sortedOrderIds = new long[size];
+            int[] sortedTypeIds = new int[size];
+            long[] sortedLocationIds = new long[size];
+            double[] sortedPrices = new double[size];
+            int[] sortedVolumeRemain = new int[size];
+            int[] sortedDurations = new int[size];
+            long[] sortedIssued = new long[size];
+            byte[] sortedFlags = new byte[size];
+            for (int i = 0; i < size; i++) {
+                int row = (int) keys[i];
+                sortedOrderIds[i] = orderIds[row];
+                sortedTypeIds[i] = typeIds[row];
+                sortedLocationIds[i] = locationIds[row];
+                sortedPrices[i] = prices[row];
+                sortedVolumeRemain[i] = volumeRemain[row];
+                sortedDurations[i] = durations[row];
+                sortedIssued[i] = issued[row];
+                sortedFlags[i] = flags[row];
+            }
+            return new OrderBook(size, sortedOrderIds, sortedTypeIds, sortedLocationIds, sortedPrices,
+                    sortedVolumeRemain, sortedDurations, sortedIssued, sortedFlags,
+                    scannedOrders, new HashMap<>(scannedSellOrdersByLocation));
+        }
+
+        private boolean isGroupedByType() {
+            for (int row = 1; row < size; row++) {
+                if (typeIds[row] < typeIds[row - 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= orderIds.length) {
+                return;
+            }
+            int capacity = Math.max(required, orderIds.length + (orderIds.length >> 1));
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            typeIds = Arrays.copyOf(typeIds, capacity);
+            locationIds = Arrays.copyOf(locationIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            volumeRemain = Arrays.copyOf(volumeRemain, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            issued = Arrays.copyOf(issued, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+    }
+}
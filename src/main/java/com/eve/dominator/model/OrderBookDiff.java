@@ -0,0 +1,70 @@
+package com.eve.dominator.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Difference between two snapshots of the same order book, matched by orderId: orders that
+ * were added, removed, or changed price or remaining volume, and the types they belong to.
+ */
+public final class OrderBookDiff {
+
+    private final int addedOrders;
+    private final int removedOrders;
+    private final int modifiedOrders;
+    private final int[] changedTypeIds;
+
+    private OrderBookDiff(int addedOrders, int removedOrders, int modifiedOrders, int[] changedTypeIds) {
+        this.addedOrders = addedOrders;
+        this.removedOrders = removedOrders;
+        this.modifiedOrders = modifiedOrders;
+        this.changedTypeIds = changedTypeIds;
+    }
+
+    public static OrderBookDiff between(OrderBook previous, OrderBook current) {
+        Map<Long, Integer> previousRows = new HashMap<>(previous.size() * 2);
+        for (int row = 0; row < previous.size(); row++) {
+            previousRows.put(previous.orderId(row), row);
+        }
+
+        BitSet changedTypes = new BitSet();
+        BitSet matchedPreviousRows = new BitSet(previous.size());
+        int added = 0;
+        int modified = 0;
+        for (int row = 0; row < current.size(); row++) {
+            Integer previousRow = previousRows.get(current.orderId(row));
+            if (previousRow == null) {
+                added++;
+                changedTypes.set(current.typeId(row));
+                continue;
+            }
+            matchedPreviousRows.set(previousRow);
+            if (previous.price(previousRow) != current.price(row)
+                    || previous.volumeRemain(previousRow) != current.volumeRemain(row)) {
+                modified++;
+                changedTypes.set(current.typeId(row));
+            }
+        }
+
+        int removed = 0;
+        for (int row = matchedPreviousRows.nextClearBit(0); row < previous.size(); row = matchedPreviousRows.nextClearBit(row + 1)) {
+            removed++;
+            changedTypes.set(previous.typeId(row));
+        }
+
+        return new OrderBookDiff(added, removed, modified, changedTypes.stream().toArray());
+    }
+
+    public int addedOrders() { return addedOrders; }
+    public int removedOrders() { return removedOrders; }
+    public int modifiedOrders() { return modifiedOrders; }
+
+    /**
+     * @return the typeIds with at least one added, removed or modified order, ascending
+     */
+    public int[] changedTypeIds() { return Arrays.copyOf(changedTypeIds, changedTypeIds.length); }
+
+    public boolean isEmpty() { return changedTypeIds.length == 0; }
+}
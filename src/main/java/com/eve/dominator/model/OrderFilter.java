@@ -0,0 +1,60 @@
+package com.eve.dominator.model;
+
+/**
+ * Push-down predicate applied while ESI order pages are decoded. Orders that do not
+ * match are skipped at the token level and never reach an OrderBook.
+ * <p>
+ * A filter for a single type is pushed further down into the request itself: ESI is asked
+ * for that type_id and order_type only, instead of the whole region.
+ */
+public record OrderFilter(long locationId, Side side, int typeId) {
+
+    public static final long ANY_LOCATION = -1L;
+    public static final int ANY_TYPE = 0;
+
+    public enum Side { ALL, BUY, SELL }
+
+    private static final OrderFilter ALL_ORDERS = new OrderFilter(ANY_LOCATION, Side.ALL, ANY_TYPE);
+
+    public static OrderFilter all() {
+        return ALL_ORDERS;
+    }
+
+    public static OrderFilter sellOrdersAt(long stationId) {
+        return new OrderFilter(stationId, Side.SELL, ANY_TYPE);
+    }
+
+    /**
+     * @return the same filter restricted to one type, fetched with a type_id request
+     */
+    public OrderFilter forType(int typeId) {
+        return new OrderFilter(locationId, side, typeId);
+    }
+
+    public boolean isTypeTargeted() {
+        return typeId != ANY_TYPE;
+    }
+
+    /**
+     * @return the ESI order_type query parameter matching the side
+     */
+    public String orderType() {
+        return switch (side) {
+            case ALL -> "all";
+            case BUY -> "buy";
+            case SELL -> "sell";
+        };
+    }
+
+    public boolean acceptsLocation(long orderLocationId) {
+        return locationId == ANY_LOCATION || locationId == orderLocationId;
+    }
+
+    public boolean acceptsSide(boolean buyOrder) {
+        return side == Side.ALL || (side == Side.BUY) == buyOrder;
+    }
+
+    public boolean accepts(long orderLocationId, boolean buyOrder) {
+        return acceptsLocation(orderLocationId) && acceptsSide(buyOrder);
+    }
+}
@@ -0,0 +1,78 @@
+package com.eve.dominator.model;
+
+import java.time.Instant;
+
+/**
+ * A monopoly scan or Mokaam import running in the background. The job is its own progress
+ * listener, so the status endpoint always reports the current phase.
+ */
+public class ScanJob implements ScanProgress {
+
+    public enum Type { MONOPOLY_SCAN, MOKAAM_IMPORT, MOKAAM_IMPORT_ALL }
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final Type type;
+    private final Long regionId;
+    private final Instant createdAt = Instant.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String phase = "Queued";
+    private volatile int progressDone;
+    private volatile int progressTotal;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile Object result;
+    private volatile String error;
+
+    public ScanJob(String id, Type type, Long regionId) {
+        this.id = id;
+        this.type = type;
+        this.regionId = regionId;
+    }
+
+    @Override
+    public synchronized void update(String phase, int done, int total) {
+        this.phase = phase;
+        this.progressDone = done;
+        this.progressTotal = total;
+    }
+
+    public synchronized void markRunning() {
+        status = Status.RUNNING;
+        phase = "Starting";
+        startedAt = Instant.now();
+    }
+
+    public synchronized void markCompleted(Object result) {
+        this.result = result;
+        finishedAt = Instant.now();
+        phase = "Completed";
+        status = Status.COMPLETED;
+    }
+
+    public synchronized void markFailed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        phase = "Failed";
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getId() { return id; }
+    public Type getType() { return type; }
+    public Long getRegionId() { return regionId; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Status getStatus() { return status; }
+    public String getPhase() { return phase; }
+    public int getProgressDone() { return progressDone; }
+    public int getProgressTotal() { return progressTotal; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public Object getResult() { return result; }
+    public String getError() { return error; }
+}
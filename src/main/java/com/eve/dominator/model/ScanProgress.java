@@ -0,0 +1,13 @@
+package com.eve.dominator.model;
+
+/**
+ * Receives progress of a long running scan or import, e.g. "Fetching order pages" 12 of 340.
+ * Implementations must be thread-safe, updates arrive from fetch and analysis threads.
+ */
+@FunctionalInterface
+public interface ScanProgress {
+
+    ScanProgress NONE = (phase, done, total) -> { };
+
+    void update(String phase, int done, int total);
+}
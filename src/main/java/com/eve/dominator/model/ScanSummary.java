@@ -0,0 +1,94 @@
+package com.eve.dominator.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Summary of the order snapshot behind a monopoly scan: how many orders were scanned,
+ * where the region's sell orders are, and how the target station's sell orders are spread
+ * over order durations. Built in one pass over the snapshot the scan already holds.
+ */
+public class ScanSummary {
+
+    // Player orders last at most 90 days, so longer durations point to NPC seeded orders
+    public static final int MAX_PLAYER_DURATION = 90;
+
+    private final long stationId;
+    private final int totalOrdersScanned;
+    private final int stationSellOrders;
+    private final int opportunitiesFound;
+    private final List<LocationCount> topLocations;
+    private final SortedMap<Integer, Long> durationHistogram;
+    private final long potentialNpcOrders;
+    private final String fetchPlan;
+
+    public ScanSummary(long stationId, int totalOrdersScanned, int stationSellOrders, int opportunitiesFound,
+                       List<LocationCount> topLocations, SortedMap<Integer, Long> durationHistogram,
+                       long potentialNpcOrders, String fetchPlan) {
+        this.stationId = stationId;
+        this.totalOrdersScanned = totalOrdersScanned;
+        this.stationSellOrders = stationSellOrders;
+        this.opportunitiesFound = opportunitiesFound;
+        this.topLocations = Collections.unmodifiableList(topLocations);
+        this.durationHistogram = Collections.unmodifiableSortedMap(durationHistogram);
+        this.potentialNpcOrders = potentialNpcOrders;
+        this.fetchPlan = fetchPlan;
+    }
+
+    /**
+     * Summarizes a station snapshot. The book only holds the station's sell orders, the
+     * location distribution comes from the counts recorded while its pages were decoded. A targeted
+     * fetch only decodes the candidate types, so its counts cover those types rather than the region.
+     */
+    public static ScanSummary of(OrderBook stationOrders, long stationId, int opportunitiesFound, int topLocationLimit,
+                                 String fetchPlan) {
+        SortedMap<Integer, Long> durationHistogram = new TreeMap<>();
+        long potentialNpcOrders = 0;
+        for (int row = 0; row < stationOrders.size(); row++) {
+            int duration = stationOrders.duration(row);
+            if (duration == OrderBook.UNKNOWN_DURATION) {
+                continue;
+            }
+            durationHistogram.merge(duration, 1L, Long::sum);
+            if (duration > MAX_PLAYER_DURATION) {
+                potentialNpcOrders++;
+            }
+        }
+
+        List<LocationCount> topLocations = new ArrayList<>();
+        stationOrders.scannedSellOrdersByLocation().entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(topLocationLimit)
+                .forEach(entry -> topLocations.add(new LocationCount(entry.getKey(), entry.getValue())));
+
+        return new ScanSummary(stationId, stationOrders.scannedOrders(), stationOrders.size(), opportunitiesFound,
+                topLocations, durationHistogram, potentialNpcOrders, fetchPlan);
+    }
+
+    public long getStationId() { return stationId; }
+    public int getTotalOrdersScanned() { return totalOrdersScanned; }
+    public int getStationSellOrders() { return stationSellOrders; }
+    public int getOpportunitiesFound() { return opportunitiesFound; }
+    public List<LocationCount> getTopLocations() { return topLocations; }
+    public SortedMap<Integer, Long> getDurationHistogram() { return durationHistogram; }
+    public long getPotentialNpcOrders() { return potentialNpcOrders; }
+    public String getFetchPlan() { return fetchPlan; }
+
+    public static class LocationCount {
+        private final long locationId;
+        private final int sellOrders;
+
+        public LocationCount(long locationId, int sellOrders) {
+            this.locationId = locationId;
+            this.sellOrders = sellOrders;
+        }
+
+        public long getLocationId() { return locationId; }
+        public int getSellOrders() { return sellOrders; }
+    }
+}
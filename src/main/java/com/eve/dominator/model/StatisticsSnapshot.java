@@ -0,0 +1,137 @@
+package com.eve.dominator.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar, immutable copy of one region's latest statistics at one dataset version. Every type
+ * is a slot in parallel primitive arrays; missing values are NaN for prices and -1 for volumes.
+ * A type id is mapped to its slot through a dense lookup table, so a read is two array accesses.
+ */
+public final class StatisticsSnapshot {
+
+    public static final long MISSING_VOLUME = -1L;
+
+    // Type ids beyond this fall back to a binary search instead of a lookup table
+    private static final int MAX_DENSE_TYPE_ID = 1 << 21;
+
+    private final long regionId;
+    private final long version;
+    private final int size;
+    private final int[] typeIds;
+    private final int[] slotByTypeId;
+    private final long[] statisticsIds;
+
+    private final double[] vwapWeek;
+    private final long[] volumeWeek;
+    private final double[] vwapMonth;
+    private final long[] volumeMonth;
+    private final double[] averagePriceMonth;
+    private final double[] vwapQuarter;
+    private final long[] volumeQuarter;
+    private final double[] averagePriceQuarter;
+    private final double[] vwapYear;
+    private final long[] volumeYear;
+    private final double[] averagePriceYear;
+
+    private StatisticsSnapshot(long regionId, long version, List<? extends LatestStatisticsView> rows) {
+        this.regionId = regionId;
+        this.version = version;
+        this.size = rows.size();
+        this.typeIds = new int[size];
+        this.statisticsIds = new long[size];
+        this.vwapWeek = new double[size];
+        this.volumeWeek = new long[size];
+        this.vwapMonth = new double[size];
+        this.volumeMonth = new long[size];
+        this.averagePriceMonth = new double[size];
+        this.vwapQuarter = new double[size];
+        this.volumeQuarter = new long[size];
+        this.averagePriceQuarter = new double[size];
+        this.vwapYear = new double[size];
+        this.volumeYear = new long[size];
+        this.averagePriceYear = new double[size];
+
+        int maxTypeId = -1;
+        for (int slot = 0; slot < size; slot++) {
+            LatestStatisticsView row = rows.get(slot);
+            typeIds[slot] = row.getTypeId();
+            statisticsIds[slot] = row.getStatisticsId();
+            vwapWeek[slot] = price(row.getVwapWeek());
+            volumeWeek[slot] = volume(row.getVolumeWeek());
+            vwapMonth[slot] = price(row.getVwapMonth());
+            volumeMonth[slot] = volume(row.getVolumeMonth());
+            averagePriceMonth[slot] = price(row.getAveragePriceMonth());
+            vwapQuarter[slot] = price(row.getVwapQuarter());
+            volumeQuarter[slot] = volume(row.getVolumeQuarter());
+            averagePriceQuarter[slot] = price(row.getAveragePriceQuarter());
+            vwapYear[slot] = price(row.getVwapYear());
+            volumeYear[slot] = volume(row.getVolumeYear());
+            averagePriceYear[slot] = price(row.getAveragePriceYear());
+            maxTypeId = Math.max(maxTypeId, typeIds[slot]);
+        }
+
+        if (maxTypeId < MAX_DENSE_TYPE_ID) {
+            slotByTypeId = new int[maxTypeId + 1];
+            Arrays.fill(slotByTypeId, -1);
+            for (int slot = 0; slot < size; slot++) {
+                if (typeIds[slot] >= 0) {
+                    slotByTypeId[typeIds[slot]] = slot;
+                }
+            }
+        } else {
+            slotByTypeId = null;
+        }
+    }
+
+    public static StatisticsSnapshot empty(long regionId, long version) {
+        return new StatisticsSnapshot(regionId, version, List.of());
+    }
+
+    /**
+     * Copies the rows into primitive columns.
+     *
+     * @param rows one row per type, sorted by type id
+     */
+    public static StatisticsSnapshot of(long regionId, long version, List<? extends LatestStatisticsView> rows) {
+        return new StatisticsSnapshot(regionId, version, rows);
+    }
+
+    private static double price(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static long volume(Long value) {
+        return value != null ? value : MISSING_VOLUME;
+    }
+
+    /**
+     * @return the slot of the type, or -1 if the region has no statistics for it
+     */
+    public int slotOf(int typeId) {
+        if (slotByTypeId != null) {
+            return typeId >= 0 && typeId < slotByTypeId.length ? slotByTypeId[typeId] : -1;
+        }
+        int slot = Arrays.binarySearch(typeIds, 0, size, typeId);
+        return slot >= 0 ? slot : -1;
+    }
+
+    public long regionId() { return regionId; }
+    public long version() { return version; }
+    public int size() { return size; }
+
+    public int typeIdAt(int slot) { return typeIds[slot]; }
+    public long statisticsId(int slot) { return statisticsIds[slot]; }
+
+    public double vwapWeek(int slot) { return vwapWeek[slot]; }
+    public long volumeWeek(int slot) { return volumeWeek[slot]; }
+    public double vwapMonth(int slot) { return vwapMonth[slot]; }
+    public long volumeMonth(int slot) { return volumeMonth[slot]; }
+    public double averagePriceMonth(int slot) { return averagePriceMonth[slot]; }
+    public double vwapQuarter(int slot) { return vwapQuarter[slot]; }
+    public long volumeQuarter(int slot) { return volumeQuarter[slot]; }
+    public double averagePriceQuarter(int slot) { return averagePriceQuarter[slot]; }
+    public double vwapYear(int slot) { return vwapYear[slot]; }
+    public long volumeYear(int slot) { return volumeYear[slot]; }
+    public double averagePriceYear(int slot) { return averagePriceYear[slot]; }
+}
@@ -0,0 +1,34 @@
+package com.eve.dominator.model;
+
+import jakarta.persistence.*;
+
+/**
+ * The market statistics version a region's readers currently see. An import writes the next
+ * version alongside the published one and switches this single row when it is complete.
+ */
+@Entity
+@Table(name = "market_statistics_version")
+public class StatisticsVersion {
+
+    @Id
+    @Column(name = "region_id")
+    private Long regionId;
+
+    @Column(name = "published_version", nullable = false)
+    private Long publishedVersion;
+
+    // Constructors
+    public StatisticsVersion() {}
+
+    public StatisticsVersion(Long regionId, Long publishedVersion) {
+        this.regionId = regionId;
+        this.publishedVersion = publishedVersion;
+    }
+
+    // Getters and setters
+    public Long getRegionId() { return regionId; }
+    public void setRegionId(Long regionId) { this.regionId = regionId; }
+
+    public Long getPublishedVersion() { return publishedVersion; }
+    public void setPublishedVersion(Long publishedVersion) { this.publishedVersion = publishedVersion; }
+}
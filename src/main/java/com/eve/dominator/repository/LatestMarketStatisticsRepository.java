@@ -0,0 +1,27 @@
+package com.eve.dominator.repository;
+
+import com.eve.dominator.model.LatestMarketStatistics;
+import com.eve.dominator.model.LatestStatisticsView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Written only through MarketStatisticsBatchWriter, so every read here is a read-only transaction
+@Repository
+@Transactional(readOnly = true)
+public interface LatestMarketStatisticsRepository extends JpaRepository<LatestMarketStatistics, LatestMarketStatistics.Key> {
+
+    @Query("SELECT l.typeId AS typeId, l.statisticsId AS statisticsId, l.vwapWeek AS vwapWeek, l.volumeWeek AS volumeWeek, " +
+           "l.vwapMonth AS vwapMonth, l.volumeMonth AS volumeMonth, l.averagePriceMonth AS averagePriceMonth, " +
+           "l.vwapQuarter AS vwapQuarter, l.volumeQuarter AS volumeQuarter, l.averagePriceQuarter AS averagePriceQuarter, " +
+           "l.vwapYear AS vwapYear, l.volumeYear AS volumeYear, l.averagePriceYear AS averagePriceYear " +
+           "FROM LatestMarketStatistics l WHERE l.regionId = :regionId AND l.datasetVersion = :version ORDER BY l.typeId")
+    List<LatestStatisticsView> findSnapshotRows(@Param("regionId") Long regionId, @Param("version") long version);
+
+    @Query("SELECT l.typeId FROM LatestMarketStatistics l WHERE l.regionId = :regionId AND l.datasetVersion = :version ORDER BY l.typeId LIMIT :limit")
+    List<Integer> findTypeIds(@Param("regionId") Long regionId, @Param("version") long version, @Param("limit") int limit);
+}
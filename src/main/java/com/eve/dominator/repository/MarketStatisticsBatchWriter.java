@@ -0,0 +1,376 @@
+package com.eve.dominator.repository;
+
+import com.eve.dominator.model.MarketStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bulk write path for market statistics imports. The entity uses IDENTITY ids, which keeps
+ * Hibernate from batching inserts, so imports bypass the persistence context and send plain
+ * JDBC batches instead. Each chunk is written as one batch in its own transaction.
+ * <p>
+ * Rows are versioned per region. Readers see the rows of the region's published version
+ * (valid_from &lt;= version &lt; valid_to). A refresh stages the next version next to it: new and
+ * changed rows are inserted with valid_from = next, replaced and stale rows get valid_to = next,
+ * unchanged rows are not written at all. Publishing is a single update of the region's row in
+ * market_statistics_version, so readers switch from one complete dataset to the next at once
+ * and never see a half-written import. Rows that the previous version no longer needs are
+ * removed after publishing, so at most two versions of a region are kept.
+ * <p>
+ * Publishing also builds latest_market_statistics for the new version in the same transaction,
+ * so the latest-row table always matches the version it is read with.
+ */
+@Repository
+public class MarketStatisticsBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketStatisticsBatchWriter.class);
+
+    // Every data column (not the generated id or the version columns), in the order the merges bind them
+    private static final List<Column> COLUMNS = List.of(
+            new Column("type_id", MarketStatistics::getTypeId),
+            new Column("region_id", MarketStatistics::getRegionId),
+            new Column("date", MarketStatistics::getDate),
+            new Column("average_price", MarketStatistics::getAveragePrice),
+            new Column("highest_price", MarketStatistics::getHighestPrice),
+            new Column("lowest_price", MarketStatistics::getLowestPrice),
+            new Column("volume", MarketStatistics::getVolume),
+            new Column("order_count", MarketStatistics::getOrderCount),
+            new Column("vol_week", MarketStatistics::getVolumeWeek),
+            new Column("avg_price_week", MarketStatistics::getAveragePriceWeek),
+            new Column("order_count_week", MarketStatistics::getOrderCountWeek),
+            new Column("high_week", MarketStatistics::getHighWeek),
+            new Column("low_week", MarketStatistics::getLowWeek),
+            new Column("spread_week", MarketStatistics::getSpreadWeek),
+            new Column("vwap_week", MarketStatistics::getVwapWeek),
+            new Column("std_dev_week", MarketStatistics::getStdDevWeek),
+            new Column("vol_month", MarketStatistics::getVolumeMonth),
+            new Column("avg_price_month", MarketStatistics::getAveragePriceMonth),
+            new Column("order_count_month", MarketStatistics::getOrderCountMonth),
+            new Column("high_month", MarketStatistics::getHighMonth),
+            new Column("low_month", MarketStatistics::getLowMonth),
+            new Column("spread_month", MarketStatistics::getSpreadMonth),
+            new Column("vwap_month", MarketStatistics::getVwapMonth),
+            new Column("std_dev_month", MarketStatistics::getStdDevMonth),
+            new Column("vol_quarter", MarketStatistics::getVolumeQuarter),
+            new Column("avg_price_quarter", MarketStatistics::getAveragePriceQuarter),
+            new Column("order_count_quarter", MarketStatistics::getOrderCountQuarter),
+            new Column("high_quarter", MarketStatistics::getHighQuarter),
+            new Column("low_quarter", MarketStatistics::getLowQuarter),
+            new Column("spread_quarter", MarketStatistics::getSpreadQuarter),
+            new Column("vwap_quarter", MarketStatistics::getVwapQuarter),
+            new Column("std_dev_quarter", MarketStatistics::getStdDevQuarter),
+            new Column("vol_year", MarketStatistics::getVolumeYear),
+            new Column("avg_price_year", MarketStatistics::getAveragePriceYear),
+            new Column("order_count_year", MarketStatistics::getOrderCountYear),
+            new Column("high_year", MarketStatistics::getHighYear),
+            new Column("low_year", MarketStatistics::getLowYear),
+            new Column("spread_year", MarketStatistics::getSpreadYear),
+            new Column("vwap_year", MarketStatistics::getVwapYear),
+            new Column("std_dev_year", MarketStatistics::getStdDevYear),
+            new Column("week_52_high", MarketStatistics::getWeek52High),
+            new Column("week_52_low", MarketStatistics::getWeek52Low),
+            new Column("size_yesterday", MarketStatistics::getSizeYesterday),
+            new Column("size_week", MarketStatistics::getSizeWeek),
+            new Column("size_month", MarketStatistics::getSizeMonth),
+            new Column("size_quarter", MarketStatistics::getSizeQuarter),
+            new Column("size_year", MarketStatistics::getSizeYear)
+    );
+
+    private static final Set<String> KEY_COLUMNS = Set.of("type_id", "region_id", "date");
+
+    private static final String CLOSE_CHANGED_SQL = buildCloseChangedSql();
+    private static final String INSERT_NEW_SQL = buildInsertNewSql();
+
+    private static final String SELECT_CURRENT_KEYS_SQL =
+            "SELECT id, type_id, date FROM market_statistics WHERE region_id = ? AND valid_to IS NULL AND valid_from < ?";
+    private static final String CLOSE_BY_ID_SQL = "UPDATE market_statistics SET valid_to = ? WHERE id = ?";
+
+    private static final String SELECT_PUBLISHED_SQL =
+            "SELECT published_version FROM market_statistics_version WHERE region_id = ?";
+    private static final String PUBLISH_SQL =
+            "MERGE INTO market_statistics_version (region_id, published_version) KEY (region_id) VALUES (?, ?)";
+    private static final String PURGE_SUPERSEDED_SQL =
+            "DELETE FROM market_statistics WHERE region_id = ? AND valid_to IS NOT NULL AND valid_to <= ?";
+
+    private static final String VISIBLE_AT_VERSION = "%1$s.valid_from <= ? AND (%1$s.valid_to IS NULL OR %1$s.valid_to > ?)";
+    private static final String CLEAR_LATEST_SQL =
+            "DELETE FROM latest_market_statistics WHERE region_id = ? AND dataset_version = ?";
+    private static final String BUILD_LATEST_SQL =
+            "INSERT INTO latest_market_statistics (region_id, dataset_version, type_id, statistics_id, date, " +
+            "vwap_week, vol_week, vwap_month, vol_month, avg_price_month, vwap_quarter, vol_quarter, avg_price_quarter, " +
+            "vwap_year, vol_year, avg_price_year) " +
+            "SELECT ms.region_id, ?, ms.type_id, ms.id, ms.date, " +
+            "ms.vwap_week, ms.vol_week, ms.vwap_month, ms.vol_month, ms.avg_price_month, ms.vwap_quarter, ms.vol_quarter, " +
+            "ms.avg_price_quarter, ms.vwap_year, ms.vol_year, ms.avg_price_year " +
+            "FROM market_statistics ms WHERE ms.region_id = ? AND " + VISIBLE_AT_VERSION.formatted("ms") + " AND ms.date = " +
+            "(SELECT MAX(other.date) FROM market_statistics other WHERE other.region_id = ms.region_id " +
+            "AND other.type_id = ms.type_id AND " + VISIBLE_AT_VERSION.formatted("other") + ")";
+    private static final String PURGE_LATEST_SQL =
+            "DELETE FROM latest_market_statistics WHERE region_id = ? AND dataset_version < ?";
+    private static final String SELECT_MISSING_LATEST_SQL =
+            "SELECT v.region_id, v.published_version FROM market_statistics_version v WHERE NOT EXISTS " +
+            "(SELECT 1 FROM latest_market_statistics l WHERE l.region_id = v.region_id AND l.dataset_version = v.published_version)";
+
+    private static final String DISCARD_STAGED_SQL = "DELETE FROM market_statistics WHERE region_id = ? AND valid_from = ?";
+    private static final String REOPEN_CLOSED_SQL = "UPDATE market_statistics SET valid_to = NULL WHERE region_id = ? AND valid_to = ?";
+
+    // Regions with data from before versioning are registered at version 0, where all of their rows are visible
+    private static final String REGISTER_UNVERSIONED_SQL =
+            "INSERT INTO market_statistics_version (region_id, published_version) " +
+            "SELECT DISTINCT ms.region_id, 0 FROM market_statistics ms WHERE NOT EXISTS " +
+            "(SELECT 1 FROM market_statistics_version v WHERE v.region_id = ms.region_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // One refresh per region at a time; a second import of the region waits for the first
+    private final Map<Long, Semaphore> regionLocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MarketStatisticsBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void prepareVersioning() {
+        int registered = jdbcTemplate.update(REGISTER_UNVERSIONED_SQL);
+        if (registered > 0) {
+            logger.info("Registered {} regions with unversioned market statistics at version 0", registered);
+        }
+
+        // Published versions from before the latest-row table existed get theirs built once
+        jdbcTemplate.query(SELECT_MISSING_LATEST_SQL, resultSet -> {
+            long regionId = resultSet.getLong("region_id");
+            long version = resultSet.getLong("published_version");
+            int rows = transactionTemplate.execute(status -> buildLatest(regionId, version));
+            logger.info("Built {} latest statistics rows for region {} version {}", rows, regionId, version);
+        });
+    }
+
+    /**
+     * Fills latest_market_statistics with the latest row of every type visible in the region's version.
+     */
+    private int buildLatest(long regionId, long version) {
+        jdbcTemplate.update(CLEAR_LATEST_SQL, regionId, version);
+        return jdbcTemplate.update(BUILD_LATEST_SQL, version, regionId, version, version, version, version);
+    }
+
+    /**
+     * Starts staging the next version of a region, waiting for a refresh of the same region to finish first.
+     * The refresh must be closed; closing it without publishing discards the staged version.
+     */
+    public RegionRefresh beginRefresh(long regionId) throws InterruptedException {
+        Semaphore lock = regionLocks.computeIfAbsent(regionId, id -> new Semaphore(1));
+        lock.acquire();
+        try {
+            return new RegionRefresh(regionId, lock, publishedVersion(regionId) + 1);
+        } catch (RuntimeException e) {
+            lock.release();
+            throw e;
+        }
+    }
+
+    private long publishedVersion(long regionId) {
+        List<Long> versions = jdbcTemplate.queryForList(SELECT_PUBLISHED_SQL, Long.class, regionId);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    /**
+     * One incremental refresh of a region, staged as version {@code nextVersion}. Chunks are written in
+     * order from a single thread; the keys seen so far are kept to find the stale rows at the end.
+     */
+    public final class RegionRefresh implements AutoCloseable {
+
+        private final long regionId;
+        private final Semaphore lock;
+        private final long nextVersion;
+        private final Set<Long> seenKeys = new HashSet<>();
+        private int rowsSeen;
+        private int rowsWritten;
+        private boolean published;
+        private boolean closed;
+
+        private RegionRefresh(long regionId, Semaphore lock, long nextVersion) {
+            this.regionId = regionId;
+            this.lock = lock;
+            this.nextVersion = nextVersion;
+        }
+
+        /**
+         * Stages the rows with one committed transaction: current rows whose values differ are closed,
+         * then rows without a current counterpart are inserted into the next version.
+         *
+         * @return the number of rows inserted into the next version
+         */
+        public int upsertChunk(List<MarketStatistics> rows) {
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            for (MarketStatistics row : rows) {
+                seenKeys.add(key(row.getTypeId(), row.getDate().toEpochDay()));
+            }
+
+            int[][] counts = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(CLOSE_CHANGED_SQL, rows, rows.size(), (statement, row) -> bindRow(statement, row));
+                return jdbcTemplate.batchUpdate(INSERT_NEW_SQL, rows, rows.size(), (statement, row) -> bindRow(statement, row));
+            });
+
+            int written = 0;
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    written += Math.max(count, 0);
+                }
+            }
+            rowsSeen += rows.size();
+            rowsWritten += written;
+            return written;
+        }
+
+        private void bindRow(PreparedStatement statement, MarketStatistics row) throws SQLException {
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                statement.setObject(i + 1, COLUMNS.get(i).value().apply(row));
+            }
+            statement.setLong(COLUMNS.size() + 1, nextVersion);
+        }
+
+        /**
+         * Closes the current rows of the region that were not part of this refresh, in one committed batch.
+         *
+         * @return the number of rows closed
+         */
+        public int closeStaleRows() {
+            List<Object[]> staleIds = new ArrayList<>();
+            jdbcTemplate.query(SELECT_CURRENT_KEYS_SQL, resultSet -> {
+                long key = key(resultSet.getInt("type_id"), resultSet.getObject("date", LocalDate.class).toEpochDay());
+                if (!seenKeys.contains(key)) {
+                    staleIds.add(new Object[]{nextVersion, resultSet.getLong("id")});
+                }
+            }, regionId, nextVersion);
+
+            if (!staleIds.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(CLOSE_BY_ID_SQL, staleIds));
+            }
+            return staleIds.size();
+        }
+
+        /**
+         * Builds the staged version's latest rows and switches the region's readers to it in one
+         * transaction, then removes rows that were only visible before the now previous version.
+         * Scans pinned to the previous version keep working.
+         */
+        public void publish() {
+            transactionTemplate.executeWithoutResult(status -> {
+                buildLatest(regionId, nextVersion);
+                jdbcTemplate.update(PUBLISH_SQL, regionId, nextVersion);
+            });
+            published = true;
+            // Rows closed before the previous version are visible to neither version
+            int purged = jdbcTemplate.update(PURGE_SUPERSEDED_SQL, regionId, nextVersion - 1);
+            jdbcTemplate.update(PURGE_LATEST_SQL, regionId, nextVersion - 1);
+            logger.info("Published market statistics version {} for region {} ({} superseded rows purged)",
+                    nextVersion, regionId, purged);
+        }
+
+        /**
+         * Drops everything staged so far, so the refresh can start over or be abandoned.
+         */
+        public void discard() {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(DISCARD_STAGED_SQL, regionId, nextVersion);
+                jdbcTemplate.update(REOPEN_CLOSED_SQL, regionId, nextVersion);
+            });
+            seenKeys.clear();
+            rowsSeen = 0;
+            rowsWritten = 0;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!published) {
+                    discard();
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to discard staged market statistics version {} for region {}: {}",
+                        nextVersion, regionId, e.getMessage());
+            } finally {
+                lock.release();
+            }
+        }
+
+        public long getNextVersion() { return nextVersion; }
+        public int getRowsSeen() { return rowsSeen; }
+        public int getRowsWritten() { return rowsWritten; }
+    }
+
+    // Type ids and epoch days both fit in 32 bits, so a row key packs into one long
+    private static long key(int typeId, long epochDay) {
+        return ((long) typeId << 32) | (epochDay & 0xFFFFFFFFL);
+    }
+
+    private static List<String> sourceColumns() {
+        return Stream.concat(COLUMNS.stream().map(Column::name), Stream.of("version")).toList();
+    }
+
+    private static String sourceClause() {
+        List<String> names = sourceColumns();
+        return "USING (VALUES (" + names.stream().map(name -> "?").collect(Collectors.joining(", ")) + "))"
+                + " AS s (" + String.join(", ", names) + ")"
+                + " ON t.type_id = s.type_id AND t.region_id = s.region_id AND t.date = s.date AND t.valid_to IS NULL";
+    }
+
+    /**
+     * Closes the current row of a key when one of its values differs from the staged row, so an
+     * unchanged row keeps being shared by both versions and is not written.
+     */
+    private static String buildCloseChangedSql() {
+        List<String> valueColumns = COLUMNS.stream().map(Column::name).filter(name -> !KEY_COLUMNS.contains(name)).toList();
+
+        return "MERGE INTO market_statistics t " + sourceClause() + " AND t.valid_from < s.version"
+                + " WHEN MATCHED AND ("
+                + valueColumns.stream().map(name -> "t." + name + " IS DISTINCT FROM s." + name).collect(Collectors.joining(" OR "))
+                + ") THEN UPDATE SET valid_to = s.version";
+    }
+
+    /**
+     * Inserts the staged row into the next version unless an unchanged current row already covers its key.
+     */
+    private static String buildInsertNewSql() {
+        List<String> names = COLUMNS.stream().map(Column::name).toList();
+
+        return "MERGE INTO market_statistics t " + sourceClause()
+                + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", names) + ", valid_from) VALUES ("
+                + names.stream().map(name -> "s." + name).collect(Collectors.joining(", "))
+                + ", s.version)";
+    }
+
+    private record Column(String name, Function<MarketStatistics, Object> value) {
+    }
+}
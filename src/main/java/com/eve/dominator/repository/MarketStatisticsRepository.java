@@ -2,71 +2,42 @@ package com.eve.dominator.repository;
 
 import com.eve.dominator.model.MarketStatistics;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Optional;
 
+// Reads run as read-only transactions, so Hibernate neither snapshots nor flushes the rows they load
 @Repository
+@Transactional(readOnly = true)
 public interface MarketStatisticsRepository extends JpaRepository<MarketStatistics, Long> {
 
-    @Query("SELECT ms FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId ORDER BY ms.date DESC")
-    List<MarketStatistics> findByTypeIdAndRegionIdOrderByDateDesc(@Param("typeId") Integer typeId, @Param("regionId") Long regionId);
+    // Rows belonging to dataset version :version of their region (see StatisticsVersion)
+    String VISIBLE = "ms.validFrom <= :version AND (ms.validTo IS NULL OR ms.validTo > :version)";
 
-    @Query("SELECT ms FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId AND ms.date >= :fromDate")
-    List<MarketStatistics> findRecentStatistics(@Param("typeId") Integer typeId, @Param("regionId") Long regionId, @Param("fromDate") LocalDate fromDate);
+    @Query("SELECT COUNT(ms) > 0 FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId AND ms.date >= :fromDate AND " + VISIBLE)
+    boolean existsRecentStatistics(@Param("typeId") Integer typeId, @Param("regionId") Long regionId, @Param("fromDate") LocalDate fromDate,
+                                                @Param("version") long version);
 
-    @Query("SELECT AVG(ms.volume) FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId AND ms.date >= :fromDate")
-    Optional<Double> getAverageVolume(@Param("typeId") Integer typeId, @Param("regionId") Long regionId, @Param("fromDate") LocalDate fromDate);
+    @Query("SELECT AVG(ms.volume) FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId AND ms.date >= :fromDate AND " + VISIBLE)
+    Optional<Double> getAverageVolume(@Param("typeId") Integer typeId, @Param("regionId") Long regionId, @Param("fromDate") LocalDate fromDate,
+                                      @Param("version") long version);
 
-    @Query("SELECT AVG(ms.averagePrice) FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId AND ms.date >= :fromDate")
-    Optional<Double> getAveragePrice(@Param("typeId") Integer typeId, @Param("regionId") Long regionId, @Param("fromDate") LocalDate fromDate);
+    @Query("SELECT AVG(ms.averagePrice) FROM MarketStatistics ms WHERE ms.typeId = :typeId AND ms.regionId = :regionId AND ms.date >= :fromDate AND " + VISIBLE)
+    Optional<Double> getAveragePrice(@Param("typeId") Integer typeId, @Param("regionId") Long regionId, @Param("fromDate") LocalDate fromDate,
+                                     @Param("version") long version);
 
-    @Modifying
-    @Transactional
-    @Query("DELETE FROM MarketStatistics ms WHERE ms.regionId = :regionId")
-    void deleteByRegionId(@Param("regionId") Long regionId);
+    @Query("SELECT COUNT(ms) FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " + VISIBLE)
+    long countByRegionId(@Param("regionId") Long regionId, @Param("version") long version);
 
-    @Query("SELECT COUNT(ms) FROM MarketStatistics ms WHERE ms.regionId = :regionId")
-    long countByRegionId(@Param("regionId") Long regionId);
-
-    @Query("SELECT COUNT(ms) FROM MarketStatistics ms WHERE ms.typeId = :typeId")
+    // Spans regions, so each row is checked against the published version of its own region
+    @Query("SELECT COUNT(ms) FROM MarketStatistics ms, StatisticsVersion v WHERE v.regionId = ms.regionId AND ms.typeId = :typeId AND " +
+           "ms.validFrom <= v.publishedVersion AND (ms.validTo IS NULL OR ms.validTo > v.publishedVersion)")
     long countByTypeId(@Param("typeId") Integer typeId);
 
-    @Query("SELECT DISTINCT ms.typeId FROM MarketStatistics ms WHERE ms.regionId = :regionId ORDER BY ms.typeId LIMIT :limit")
-    List<Integer> findDistinctTypeIdsByRegionId(@Param("regionId") Long regionId, @Param("limit") int limit);
-
-    @Query("SELECT ms FROM MarketStatistics ms WHERE ms.regionId = :regionId")
-    List<MarketStatistics> findByRegionId(@Param("regionId") Long regionId);
-
-    @Query("SELECT MAX(ms.date) FROM MarketStatistics ms WHERE ms.regionId = :regionId")
-    Optional<LocalDate> findLatestDateByRegionId(@Param("regionId") Long regionId);
-
-    @Query("SELECT DISTINCT ms.typeId FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " +
-           "((ms.vwapWeek IS NOT NULL AND ms.vwapWeek > 0 AND ms.volumeWeek IS NOT NULL AND ms.volumeWeek > 0) OR " +
-           "(ms.vwapMonth IS NOT NULL AND ms.vwapMonth > 0 AND ms.volumeMonth IS NOT NULL AND ms.volumeMonth > 0) OR " +
-           "(ms.vwapQuarter IS NOT NULL AND ms.vwapQuarter > 0 AND ms.volumeQuarter IS NOT NULL AND ms.volumeQuarter > 0) OR " +
-           "(ms.vwapYear IS NOT NULL AND ms.vwapYear > 0 AND ms.volumeYear IS NOT NULL AND ms.volumeYear > 0))")
-    List<Integer> findTypeIdsWithVwapData(@Param("regionId") Long regionId);
-
-    @Query("SELECT DISTINCT ms.typeId FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " +
-           "ms.vwapWeek IS NOT NULL AND ms.vwapWeek > 0 AND ms.volumeWeek IS NOT NULL AND ms.volumeWeek > 0")
-    List<Integer> findTypeIdsWithWeeklyVwapData(@Param("regionId") Long regionId);
-
-    @Query("SELECT DISTINCT ms.typeId FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " +
-           "ms.vwapMonth IS NOT NULL AND ms.vwapMonth > 0 AND ms.volumeMonth IS NOT NULL AND ms.volumeMonth > 0")
-    List<Integer> findTypeIdsWithMonthlyVwapData(@Param("regionId") Long regionId);
-
-    @Query("SELECT DISTINCT ms.typeId FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " +
-           "ms.vwapQuarter IS NOT NULL AND ms.vwapQuarter > 0 AND ms.volumeQuarter IS NOT NULL AND ms.volumeQuarter > 0")
-    List<Integer> findTypeIdsWithQuarterlyVwapData(@Param("regionId") Long regionId);
-
-    @Query("SELECT DISTINCT ms.typeId FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " +
-           "ms.vwapYear IS NOT NULL AND ms.vwapYear > 0 AND ms.volumeYear IS NOT NULL AND ms.volumeYear > 0")
-    List<Integer> findTypeIdsWithYearlyVwapData(@Param("regionId") Long regionId);
+    @Query("SELECT MAX(ms.date) FROM MarketStatistics ms WHERE ms.regionId = :regionId AND " + VISIBLE)
+    Optional<LocalDate> findLatestDateByRegionId(@Param("regionId") Long regionId, @Param("version") long version);
 }
@@ -0,0 +1,16 @@
+package com.eve.dominator.repository;
+
+import com.eve.dominator.model.StatisticsVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StatisticsVersionRepository extends JpaRepository<StatisticsVersion, Long> {
+
+    @Query("SELECT v.publishedVersion FROM StatisticsVersion v WHERE v.regionId = :regionId")
+    Optional<Long> findPublishedVersion(@Param("regionId") Long regionId);
+}
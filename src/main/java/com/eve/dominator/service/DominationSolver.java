@@ -0,0 +1,221 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.model.OrderBook;
+
+import java.util.Arrays;
+
+/**
+ * Answers "what is the best way to buy out this type's sell orders" for any budget from
+ * cumulative cost and volume prefix arrays built once per type.
+ * <p>
+ * A stopping point s buys the s + 1 cheapest orders and relists just below order s + 1.
+ * Full stopping points are ordered by cost, so the affordable ones for a budget are a prefix
+ * found by binary search, and the best of them is read from a running maximum of their ROI.
+ * The only other candidate is the partial purchase of the first order the budget cannot cover,
+ * which is how calculateDominationOpportunity always walked the orders.
+ */
+final class DominationSolver {
+
+    private final int orderCount;
+    private final double[] prices;
+    // cumulativeCost[k] and cumulativeVolume[k] cover the k cheapest orders
+    private final double[] cumulativeCost;
+    private final int[] cumulativeVolume;
+    // bestStop[k] is the full stopping point with the highest ROI among stops 0..k
+    private final int[] bestStop;
+    private final double[] stopRoi;
+    private final double taxRate;
+
+    private DominationSolver(double[] prices, int[] volumes, double taxRate) {
+        this.orderCount = prices.length;
+        this.prices = prices;
+        this.taxRate = taxRate;
+        this.cumulativeCost = new double[orderCount + 1];
+        this.cumulativeVolume = new int[orderCount + 1];
+        for (int i = 0; i < orderCount; i++) {
+            cumulativeCost[i + 1] = cumulativeCost[i] + prices[i] * volumes[i];
+            cumulativeVolume[i + 1] = cumulativeVolume[i] + volumes[i];
+        }
+
+        int stops = Math.max(0, orderCount - 1);
+        this.stopRoi = new double[stops];
+        this.bestStop = new int[stops];
+        for (int stop = 0; stop < stops; stop++) {
+            stopRoi[stop] = roi(cumulativeVolume[stop + 1], cumulativeCost[stop + 1], prices[stop + 1] - 0.01);
+            // A later stop only wins with a strictly higher ROI, as in the sequential walk
+            bestStop[stop] = stop > 0 && stopRoi[bestStop[stop - 1]] >= stopRoi[stop] ? bestStop[stop - 1] : stop;
+        }
+    }
+
+    /**
+     * @param rowsByPrice rows of one type in the book, sorted by price ascending. A prefix from
+     *                    selectCheapest is enough for budgets up to the one it was selected for.
+     */
+    static DominationSolver of(OrderBook book, int[] rowsByPrice, double taxRate) {
+        double[] prices = new double[rowsByPrice.length];
+        int[] volumes = new int[rowsByPrice.length];
+        for (int i = 0; i < rowsByPrice.length; i++) {
+            prices[i] = book.price(rowsByPrice[i]);
+            volumes[i] = book.volumeRemain(rowsByPrice[i]);
+        }
+        return new DominationSolver(prices, volumes, taxRate);
+    }
+
+    /**
+     * Upper bound of the ROI any stopping point can reach: nothing is bought below the lowest
+     * price and nothing is relisted above the highest price minus 0.01. O(n) over the type's
+     * rows, so types that cannot reach the required ROI are rejected before any sorting.
+     * <p>
+     * This bound has to hold for every budget, so one outlier order far above the rest lets the
+     * type through; {@link #reachableRoiUpperBound} is the tight bound for a known budget.
+     */
+    static double roiUpperBound(OrderBook book, int start, int end, double taxRate) {
+        double minPrice = Double.MAX_VALUE;
+        double maxPrice = -Double.MAX_VALUE;
+        for (int row = start; row < end; row++) {
+            double price = book.price(row);
+            minPrice = Math.min(minPrice, price);
+            maxPrice = Math.max(maxPrice, price);
+        }
+        return ((maxPrice - 0.01) * (1 - taxRate) - minPrice) / minPrice * 100;
+    }
+
+    /**
+     * Selects the type's rows in price order, but only as far as a budget can reach: every order
+     * the budget covers in full, the first one it cannot cover, and the order after that, whose
+     * price the partial purchase relists below. Uses a binary min-heap, so the cost is O(n) plus
+     * O(log n) per selected order instead of a full sort. Equal prices keep row order, as the
+     * stable sort did.
+     */
+    static int[] selectCheapest(OrderBook book, int start, int end, double budget) {
+        int size = end - start;
+        int[] heap = new int[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = start + i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(book, heap, i, size);
+        }
+
+        int[] selected = new int[size];
+        int count = 0;
+        int beyondBudget = 0;
+        double cost = 0;
+        while (size > 0 && beyondBudget < 2) {
+            int row = heap[0];
+            heap[0] = heap[--size];
+            siftDown(book, heap, 0, size);
+
+            selected[count++] = row;
+            cost += book.price(row) * book.volumeRemain(row);
+            if (cost > budget) {
+                beyondBudget++;
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Upper bound of the ROI reachable within the budget selectCheapest selected for: a purchase
+     * relists below an order the budget reaches, so the highest relist price is the last selected
+     * order's price minus 0.01, and nothing is bought below the first selected order's price.
+     * Unlike {@link #roiUpperBound}, orders priced beyond the budget's reach do not raise it.
+     *
+     * @param rowsByPrice rows returned by selectCheapest, at least two
+     */
+    static double reachableRoiUpperBound(OrderBook book, int[] rowsByPrice, double taxRate) {
+        double lowestPrice = book.price(rowsByPrice[0]);
+        double highestRelist = book.price(rowsByPrice[rowsByPrice.length - 1]) - 0.01;
+        return (highestRelist * (1 - taxRate) - lowestPrice) / lowestPrice * 100;
+    }
+
+    private static void siftDown(OrderBook book, int[] heap, int index, int size) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && cheaper(book, heap[left], heap[smallest])) {
+                smallest = left;
+            }
+            if (right < size && cheaper(book, heap[right], heap[smallest])) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            int swap = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = swap;
+            index = smallest;
+        }
+    }
+
+    private static boolean cheaper(OrderBook book, int row, int other) {
+        double price = book.price(row);
+        double otherPrice = book.price(other);
+        return price < otherPrice || (price == otherPrice && row < other);
+    }
+
+    /**
+     * @return the highest ROI purchase that fits the budget, or null if not even one item is affordable
+     *         or there is no higher order to relist below
+     */
+    Candidate bestWithin(double budget) {
+        if (orderCount < 2) {
+            return null;
+        }
+
+        // Full stops 0..affordableStops-1 fit the budget
+        int affordableStops = Math.min(orderCount - 1, countCostsWithin(budget) - 1);
+
+        Candidate best = null;
+        if (affordableStops > 0) {
+            int stop = bestStop[affordableStops - 1];
+            best = new Candidate(stop + 1, cumulativeVolume[stop + 1], cumulativeCost[stop + 1],
+                    prices[stop + 1] - 0.01, prices[stop], stopRoi[stop]);
+        }
+
+        if (affordableStops < orderCount - 1) {
+            int stop = affordableStops;
+            int partialItems = (int) ((budget - cumulativeCost[stop]) / prices[stop]);
+            if (partialItems > 0) {
+                int items = cumulativeVolume[stop] + partialItems;
+                double cost = cumulativeCost[stop] + partialItems * prices[stop];
+                double targetPrice = prices[stop + 1] - 0.01;
+                double roi = roi(items, cost, targetPrice);
+                if (best == null || roi > best.roiPercentage()) {
+                    best = new Candidate(stop + 1, items, cost, targetPrice, prices[stop], roi);
+                }
+            }
+        }
+        return best;
+    }
+
+    // Number of prefixes (including the empty one) whose cost is within the budget
+    private int countCostsWithin(double budget) {
+        int low = 0;
+        int high = orderCount + 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeCost[mid] <= budget) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private double roi(int items, double cost, double targetSellPrice) {
+        double netRevenue = targetSellPrice * items * (1 - taxRate);
+        return (netRevenue - cost) / cost * 100;
+    }
+
+    /**
+     * One purchase scenario: clear ordersCleared orders (the last one possibly partially)
+     * and relist at targetSellPrice.
+     */
+    record Candidate(int ordersCleared, int totalItems, double totalCost, double targetSellPrice,
+                     double highestBuyPrice, double roiPercentage) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.model.OrderFilter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Streaming decoder for /markets/{region_id}/orders/ pages. Reads the JSON token by
+ * token straight into OrderBook columns; orders rejected by the OrderFilter are skipped
+ * without creating any objects or strings for them. Their fields are read as primitives at
+ * most, and the issued timestamp is only converted for accepted orders. The location and side
+ * of every order are recorded, so the book can still report how sell orders were spread over
+ * the region.
+ */
+@Component
+public class EsiOrderDecoder {
+
+    // "2024-01-31T12:34:56Z"
+    private static final int ISO_INSTANT_LENGTH = 20;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public OrderBook decode(InputStream input, OrderFilter filter) throws IOException {
+        OrderBook.Builder builder = OrderBook.builder(1000);
+
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return OrderBook.empty();
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of market orders but got " + token);
+            }
+            IssuedText issuedText = new IssuedText();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                decodeOrder(parser, filter, builder, issuedText);
+            }
+        }
+
+        return builder.build();
+    }
+
+    private void decodeOrder(JsonParser parser, OrderFilter filter, OrderBook.Builder builder,
+                             IssuedText issuedText) throws IOException {
+        long orderId = 0;
+        int typeId = 0;
+        long locationId = 0;
+        double price = 0;
+        int volumeRemain = 0;
+        int duration = OrderBook.UNKNOWN_DURATION;
+        boolean buyOrder = false;
+        boolean rejected = false;
+        issuedText.clear();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            // The location and side are always read so scan statistics cover rejected orders too
+            switch (field) {
+                case "location_id" -> {
+                    locationId = parser.getLongValue();
+                    rejected |= !filter.acceptsLocation(locationId);
+                    continue;
+                }
+                case "is_buy_order" -> {
+                    buyOrder = value == JsonToken.VALUE_TRUE;
+                    rejected |= !filter.acceptsSide(buyOrder);
+                    continue;
+                }
+                default -> { }
+            }
+
+            // Shortcut: values that follow a rejecting location or side are skipped without being decoded
+            if (rejected) {
+                parser.skipChildren();
+                continue;
+            }
+
+            switch (field) {
+                case "order_id" -> orderId = parser.getLongValue();
+                case "type_id" -> typeId = parser.getIntValue();
+                case "price" -> price = parser.getDoubleValue();
+                case "volume_remain" -> volumeRemain = parser.getIntValue();
+                case "duration" -> duration = parser.getIntValue();
+                // ESI sends it before location_id, so it is only converted once the order is accepted
+                case "issued" -> issuedText.copyFrom(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        builder.noteScanned(locationId, buyOrder);
+        // A missing location or side leaves its default, which the filter has not seen yet
+        if (filter.accepts(locationId, buyOrder)) {
+            builder.add(orderId, typeId, locationId, price, volumeRemain, duration, issuedText.toEpochSecond(), buyOrder);
+        }
+    }
+
+    private static int digits(char[] chars, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a digit: " + chars[i]);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Raw characters of an order's issued timestamp, copied out of the parser's buffer (which is
+     * reused for the next token) and reused across orders so that nothing is allocated per order.
+     */
+    private static final class IssuedText {
+
+        private char[] chars = new char[ISO_INSTANT_LENGTH];
+        private int length = -1;
+
+        void clear() {
+            length = -1;
+        }
+
+        void copyFrom(JsonParser parser) throws IOException {
+            length = parser.getTextLength();
+            if (length > chars.length) {
+                chars = new char[length];
+            }
+            System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), chars, 0, length);
+        }
+
+        /**
+         * Parses the ISO-8601 UTC timestamp, or returns UNKNOWN_ISSUED if there was none or it is malformed.
+         */
+        long toEpochSecond() {
+            if (length < 0) {
+                return OrderBook.UNKNOWN_ISSUED;
+            }
+            try {
+                if (length == ISO_INSTANT_LENGTH && chars[4] == '-' && chars[10] == 'T' && chars[19] == 'Z') {
+                    long epochDay = LocalDate.of(digits(chars, 0, 4), digits(chars, 5, 2), digits(chars, 8, 2)).toEpochDay();
+                    return epochDay * 86_400L
+                            + digits(chars, 11, 2) * 3_600L
+                            + digits(chars, 14, 2) * 60L
+                            + digits(chars, 17, 2);
+                }
+                return Instant.parse(new String(chars, 0, length)).getEpochSecond();
+            } catch (DateTimeException | NumberFormatException e) {
+                return OrderBook.UNKNOWN_ISSUED;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.model.OrderFilter;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of ESI market order pages, keyed by region, decode filter and page number.
+ * Each entry keeps the ETag and Expires headers of the response it came from so that
+ * pages can be served from memory until they expire and revalidated with
+ * If-None-Match afterwards.
+ * <p>
+ * Whole-region page sets are kept for revalidation. Type-targeted sets (one per type a scan
+ * fetched with a type_id request) are dropped once all their pages have expired, so the cache
+ * only holds the types recent scans asked for.
+ */
+@Component
+public class EsiPageCache {
+
+    private static final long EVICTION_INTERVAL_MILLIS = 60_000;
+
+    private final Map<PageSetKey, Map<Integer, CachedPage>> pagesByRegion = new ConcurrentHashMap<>();
+    // X-Pages of the latest whole-region page per region, read on every scan admission
+    private final Map<Long, Integer> regionPageCounts = new ConcurrentHashMap<>();
+    private final AtomicLong nextEvictionMillis = new AtomicLong();
+
+    public CachedPage get(long regionId, OrderFilter filter, int page) {
+        Map<Integer, CachedPage> pages = pagesByRegion.get(new PageSetKey(regionId, filter));
+        return pages != null ? pages.get(page) : null;
+    }
+
+    public void put(long regionId, OrderFilter filter, int page, CachedPage cachedPage) {
+        if (filter.isTypeTargeted()) {
+            evictExpiredTypeSets();
+        } else {
+            regionPageCounts.put(regionId, cachedPage.totalPages());
+        }
+        pagesByRegion.computeIfAbsent(new PageSetKey(regionId, filter), key -> new ConcurrentHashMap<>())
+                .put(page, cachedPage);
+    }
+
+    /**
+     * Drops cached pages beyond the current page count of a region, e.g. after the
+     * order book shrank and X-Pages went down.
+     */
+    public void retainPages(long regionId, OrderFilter filter, int totalPages) {
+        Map<Integer, CachedPage> pages = pagesByRegion.get(new PageSetKey(regionId, filter));
+        if (pages != null) {
+            pages.keySet().removeIf(page -> page > totalPages);
+        }
+    }
+
+    /**
+     * @return the page count (X-Pages) last seen for the whole region, or 0 if the region was never fetched
+     */
+    public int knownPageCount(long regionId) {
+        return regionPageCounts.getOrDefault(regionId, 0);
+    }
+
+    /**
+     * @return the latest Expires of the cached pages decoded with the filter, i.e. when ESI serves
+     *         the whole order book fresh again, or null if nothing is cached
+     */
+    public Instant expiresAt(long regionId, OrderFilter filter) {
+        Map<Integer, CachedPage> pages = pagesByRegion.get(new PageSetKey(regionId, filter));
+        if (pages == null) {
+            return null;
+        }
+        Instant latest = null;
+        for (CachedPage page : pages.values()) {
+            if (page.expires() != null && (latest == null || page.expires().isAfter(latest))) {
+                latest = page.expires();
+            }
+        }
+        return latest;
+    }
+
+    // Sweeps at most once per interval, so a scan putting one set per type does not rescan the cache each time
+    private void evictExpiredTypeSets() {
+        long nowMillis = System.currentTimeMillis();
+        long due = nextEvictionMillis.get();
+        if (nowMillis < due || !nextEvictionMillis.compareAndSet(due, nowMillis + EVICTION_INTERVAL_MILLIS)) {
+            return;
+        }
+        Instant now = Instant.ofEpochMilli(nowMillis);
+        pagesByRegion.entrySet().removeIf(entry -> entry.getKey().filter().isTypeTargeted()
+                && entry.getValue().values().stream().noneMatch(page -> page.isFresh(now)));
+    }
+
+    // Pages decoded with different filters hold different rows, so they are cached separately
+    private record PageSetKey(long regionId, OrderFilter filter) {}
+
+    public record CachedPage(String etag, Instant expires, int totalPages, OrderBook orders) {
+
+        public boolean isFresh(Instant now) {
+            return expires != null && now.isBefore(expires);
+        }
+
+        public CachedPage revalidated(Instant newExpires, int newTotalPages) {
+            return new CachedPage(etag, newExpires, newTotalPages, orders);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.config.EveConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shared gate for every ESI request. Concurrency is capped by an AIMD window: it grows
+ * additively while requests succeed within the latency target and is cut in half on
+ * server errors or slow responses. Requests are held back while ESI's error budget
+ * (X-ESI-Error-Limit-Remain) is at or below the configured threshold, until the budget
+ * resets, so a scan never pushes us into an error ban.
+ * <p>
+ * Requests that find the window full wait in a FIFO queue and are handed a permit when a
+ * request finishes or the window grows, so waiting costs nothing while the window is full.
+ */
+@Component
+public class EsiRequestScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsiRequestScheduler.class);
+
+    private static final int ERROR_LIMITED_STATUS = 420;
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long latencyTargetMillis;
+    private final int errorLimitThreshold;
+
+    private final Object lock = new Object();
+    private double concurrencyLimit;
+    private int inFlight;
+    private final Deque<MonoSink<Long>> waiters = new ArrayDeque<>();
+
+    private volatile int errorLimitRemain = Integer.MAX_VALUE;
+    private volatile Instant errorLimitReset = Instant.EPOCH;
+
+    @Autowired
+    public EsiRequestScheduler(EveConfig eveConfig) {
+        EveConfig.Esi esi = eveConfig.getEsi();
+        this.minConcurrency = Math.max(1, esi.getMinConcurrentRequests());
+        this.maxConcurrency = Math.max(minConcurrency, esi.getMaxConcurrentRequests());
+        this.latencyTargetMillis = esi.getLatencyTargetMs();
+        this.errorLimitThreshold = esi.getErrorLimitThreshold();
+        // Starts well inside the range so a region's page fan-out is not held to the minimum while the window ramps up
+        this.concurrencyLimit = Math.min(maxConcurrency, Math.max(minConcurrency, esi.getInitialConcurrentRequests()));
+        logger.info("EsiRequestScheduler initialized with concurrency {}..{} (starting at {}), latency target {}ms, error limit threshold {}",
+                minConcurrency, maxConcurrency, (int) concurrencyLimit, latencyTargetMillis, errorLimitThreshold);
+    }
+
+    /**
+     * Runs the request once a concurrency permit is available and the error budget allows it.
+     * The request is subscribed lazily, so it must not have been started by the caller.
+     */
+    public <T> Mono<T> schedule(Mono<T> request) {
+        return awaitErrorBudget()
+                .then(Mono.usingWhen(acquirePermit(),
+                        startNanos -> request.doOnError(error -> {
+                            if (error instanceof WebClientResponseException responseException) {
+                                recordErrorLimit(responseException.getHeaders());
+                            }
+                        }),
+                        startNanos -> Mono.fromRunnable(() -> onRequestFinished(startNanos, false)),
+                        (startNanos, error) -> Mono.fromRunnable(() -> onRequestFinished(startNanos, isCongestionSignal(error))),
+                        startNanos -> Mono.fromRunnable(() -> onRequestFinished(startNanos, false))));
+    }
+
+    /**
+     * Updates the error budget from the X-ESI-Error-Limit-* headers of a response.
+     */
+    public void recordErrorLimit(HttpHeaders headers) {
+        String remain = headers.getFirst("X-ESI-Error-Limit-Remain");
+        String reset = headers.getFirst("X-ESI-Error-Limit-Reset");
+        if (remain == null || reset == null) {
+            return;
+        }
+        try {
+            errorLimitRemain = Integer.parseInt(remain.trim());
+            errorLimitReset = Instant.now().plusSeconds(Long.parseLong(reset.trim()));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed ESI error limit headers: remain={}, reset={}", remain, reset);
+        }
+    }
+
+    private Mono<Void> awaitErrorBudget() {
+        return Mono.defer(() -> {
+            Duration untilReset = Duration.between(Instant.now(), errorLimitReset);
+            if (errorLimitRemain > errorLimitThreshold || untilReset.isNegative() || untilReset.isZero()) {
+                return Mono.empty();
+            }
+            logger.warn("ESI error budget low ({} remaining), pausing requests for {}s",
+                    errorLimitRemain, untilReset.toSeconds());
+            return Mono.delay(untilReset).then();
+        });
+    }
+
+    // Emits the start time in nanos once a permit is held; queues the caller while the window is full
+    private Mono<Long> acquirePermit() {
+        return Mono.create(sink -> {
+            synchronized (lock) {
+                if (inFlight >= (int) concurrencyLimit) {
+                    waiters.addLast(sink);
+                    sink.onCancel(() -> onWaiterCancelled(sink));
+                    return;
+                }
+                inFlight++;
+            }
+            sink.success(System.nanoTime());
+        });
+    }
+
+    // A sink only sees onCancel before it received its permit, so a granted but undelivered permit is returned here
+    private void onWaiterCancelled(MonoSink<Long> sink) {
+        List<MonoSink<Long>> granted;
+        synchronized (lock) {
+            if (waiters.remove(sink)) {
+                return;
+            }
+            inFlight--;
+            granted = grantWaiters();
+        }
+        granted.forEach(waiter -> waiter.success(System.nanoTime()));
+    }
+
+    private void onRequestFinished(long startNanos, boolean congested) {
+        long latencyMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        List<MonoSink<Long>> granted;
+        synchronized (lock) {
+            inFlight--;
+            if (congested || latencyMillis > latencyTargetMillis) {
+                // Multiplicative decrease
+                concurrencyLimit = Math.max(minConcurrency, concurrencyLimit / 2);
+            } else {
+                // Additive increase: roughly +1 per window of successful requests
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+            }
+            granted = grantWaiters();
+        }
+        // Completed outside the lock, since a waiter starts its request on this thread
+        granted.forEach(waiter -> waiter.success(System.nanoTime()));
+    }
+
+    // Takes permits for as many queued waiters as the window has room for; called holding the lock
+    private List<MonoSink<Long>> grantWaiters() {
+        List<MonoSink<Long>> granted = new ArrayList<>();
+        while (!waiters.isEmpty() && inFlight < (int) concurrencyLimit) {
+            inFlight++;
+            granted.add(waiters.pollFirst());
+        }
+        return granted;
+    }
+
+    private boolean isCongestionSignal(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            if (status == ERROR_LIMITED_STATUS) {
+                errorLimitRemain = 0;
+                return true;
+            }
+            return status >= 500;
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+}
@@ -1,102 +1,336 @@
 package com.eve.dominator.service;
 
 import com.eve.dominator.config.EveConfig;
-import com.eve.dominator.model.MarketOrder;
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.model.OrderFilter;
+import com.eve.dominator.model.ScanProgress;
+import com.eve.dominator.service.EsiPageCache.CachedPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class EsiService {
 
+    // ESI serves region orders in pages of up to this many orders
+    public static final int ORDERS_PER_PAGE = 1000;
+
+    private static final int NAMES_BATCH_SIZE = 1000;
+    private static final String FETCH_PHASE = "Fetching order pages";
+    private static final String FETCH_TYPES_PHASE = "Fetching candidate types";
+
     private final WebClient webClient;
     private final EveConfig eveConfig;
+    private final EsiPageCache pageCache;
+    private final EsiOrderDecoder orderDecoder;
+    private final EsiRequestScheduler requestScheduler;
+    private final LatencyTracker pageLatencies = new LatencyTracker(200, 20);
 
     @Autowired
-    public EsiService(EveConfig eveConfig) {
+    public EsiService(EveConfig eveConfig, EsiPageCache pageCache, EsiOrderDecoder orderDecoder,
+                      EsiRequestScheduler requestScheduler) {
         this.eveConfig = eveConfig;
+        this.pageCache = pageCache;
+        this.orderDecoder = orderDecoder;
+        this.requestScheduler = requestScheduler;
         this.webClient = WebClient.builder()
                 .baseUrl(eveConfig.getEsi().getBaseUrl())
                 .defaultHeader("User-Agent", eveConfig.getEsi().getUserAgent())
                 .build();
     }
 
-    public Mono<List<MarketOrder>> getMarketOrders(long regionId) {
-        return fetchAllPages(regionId);
+    public Mono<OrderBook> getMarketOrders(long regionId) {
+        return getMarketOrders(regionId, OrderFilter.all(), ScanProgress.NONE);
     }
 
-    private Mono<List<MarketOrder>> fetchAllPages(long regionId) {
-        return fetchPage(regionId, 1, new ArrayList<>());
+    /**
+     * Fetches the region's order book, keeping only the orders accepted by the filter, and reports
+     * every received page to the progress listener. Filtering happens while the pages are decoded,
+     * so rejected orders are never materialized.
+     */
+    public Mono<OrderBook> getMarketOrders(long regionId, OrderFilter filter, ScanProgress progress) {
+        return fetchAllPages(regionId, filter, progress);
     }
 
-    private Mono<List<MarketOrder>> fetchPage(long regionId, int page, List<MarketOrder> accumulator) {
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/markets/{region_id}/orders/")
-                        .queryParam("page", page)
-                        .build(regionId))
-                .retrieve()
-                .toEntity(MarketOrder[].class)
-                .flatMap(response -> {
-                    MarketOrder[] orders = response.getBody();
-                    List<MarketOrder> orderList = orders != null ? Arrays.asList(orders) : new ArrayList<>();
-
-                    System.out.println("ESI Page " + page + ": " + orderList.size() + " orders");
-
-                    // Add current page orders to accumulator
-                    accumulator.addAll(orderList);
-
-                    // Check if this page was empty or less than full (indicating last page)
-                    if (orderList.isEmpty()) {
-                        System.out.println("ESI PAGINATION COMPLETE:");
-                        System.out.println("  Total pages fetched: " + (page - 1));
-                        System.out.println("  Total orders: " + accumulator.size());
-                        System.out.println("  Stopped because: Empty page received");
-                        return Mono.just(accumulator);
-                    }
+    /**
+     * Fetches the orders of the given types only, with one type_id request per type (plus
+     * further pages if a type has more than one), instead of downloading the whole region.
+     * At most eve.monopoly.max-concurrent-requests types are in flight at once.
+     */
+    public Mono<OrderBook> getMarketOrdersForTypes(long regionId, OrderFilter filter, int[] typeIds, ScanProgress progress) {
+        int concurrency = Math.max(1, eveConfig.getMonopoly().getMaxConcurrentRequests());
+        AtomicInteger typesReceived = new AtomicInteger();
+        progress.update(FETCH_TYPES_PHASE, 0, typeIds.length);
+
+        return Flux.range(0, typeIds.length)
+                .flatMap(index -> fetchAllPages(regionId, filter.forType(typeIds[index]), ScanProgress.NONE)
+                        .doOnNext(orders -> progress.update(FETCH_TYPES_PHASE, typesReceived.incrementAndGet(), typeIds.length)),
+                        concurrency)
+                .collect(() -> OrderBook.builder(typeIds.length * 16), OrderBook.Builder::addAll)
+                .map(OrderBook.Builder::build)
+                .doOnNext(orders -> System.out.println("ESI region " + regionId + ": fetched " + typeIds.length
+                        + " types with targeted requests, " + orders.size() + " orders"));
+    }
 
-                    // ESI typically returns 1000 orders per page, if we get less, we're likely at the end
-                    if (orderList.size() < 1000) {
-                        System.out.println("ESI PAGINATION COMPLETE:");
-                        System.out.println("  Total pages fetched: " + page);
-                        System.out.println("  Total orders: " + accumulator.size());
-                        System.out.println("  Stopped because: Partial page received (" + orderList.size() + " orders)");
-                        return Mono.just(accumulator);
+    /**
+     * @return the region's page count (X-Pages) for the filter, from page 1. A fresh page 1 is
+     *         served from the page cache, so a full fetch afterwards does not request it again.
+     */
+    public Mono<Integer> getOrderPageCount(long regionId, OrderFilter filter) {
+        return fetchPage(regionId, filter, 1).map(OrderPage::totalPages);
+    }
+
+    /**
+     * Fetches page 1 to learn the page count from the X-Pages header, then pulls the
+     * remaining pages concurrently. Pages are merged in page order regardless of which
+     * response arrives first.
+     */
+    private Mono<OrderBook> fetchAllPages(long regionId, OrderFilter filter, ScanProgress progress) {
+        int parallelism = Math.max(1, eveConfig.getEsi().getMaxConcurrentPages());
+
+        return fetchPage(regionId, filter, 1)
+                .flatMap(firstPage -> {
+                    int totalPages = firstPage.totalPages();
+                    pageCache.retainPages(regionId, filter, totalPages);
+                    AtomicInteger pagesReceived = new AtomicInteger(1);
+                    progress.update(FETCH_PHASE, 1, totalPages);
+                    if (!filter.isTypeTargeted()) {
+                        System.out.println("ESI region " + regionId + ": X-Pages = " + totalPages
+                                + ", fetching with parallelism " + parallelism);
                     }
 
-                    // Continue to next page
-                    return fetchPage(regionId, page + 1, accumulator);
+                    return Flux.range(2, Math.max(0, totalPages - 1))
+                            .flatMapSequential(page -> fetchPage(regionId, filter, page)
+                                    .doOnNext(received -> progress.update(FETCH_PHASE, pagesReceived.incrementAndGet(), totalPages)),
+                                    parallelism)
+                            .startWith(firstPage)
+                            .collectList()
+                            .map(this::mergePages)
+                            .doOnNext(orders -> {
+                                if (!filter.isTypeTargeted()) {
+                                    System.out.println("ESI PAGINATION COMPLETE:");
+                                    System.out.println("  Total pages fetched: " + totalPages);
+                                    System.out.println("  Total orders: " + orders.size());
+                                }
+                            });
+                });
+    }
+
+    /**
+     * Merges the decoded pages into one book, sized to the rows the filter kept rather than to the
+     * region's page count, so a station filter does not allocate columns for the whole region.
+     */
+    private OrderBook mergePages(List<OrderPage> pages) {
+        int rows = 0;
+        for (OrderPage page : pages) {
+            rows += page.orders().size();
+        }
+        OrderBook.Builder builder = OrderBook.builder(rows);
+        for (OrderPage page : pages) {
+            builder.addAll(page.orders());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Serves a page from the page cache while it is fresh. Once it has expired the page
+     * is revalidated with If-None-Match, so unchanged pages come back as 304 without a body.
+     */
+    private Mono<OrderPage> fetchPage(long regionId, OrderFilter filter, int page) {
+        CachedPage cached = pageCache.get(regionId, filter, page);
+        if (cached != null && cached.isFresh(Instant.now())) {
+            return Mono.just(new OrderPage(page, cached.totalPages(), cached.orders()));
+        }
+
+        Mono<OrderPage> request = webClient.get()
+                .uri(uriBuilder -> {
+                    uriBuilder.path("/markets/{region_id}/orders/").queryParam("page", page);
+                    if (filter.isTypeTargeted()) {
+                        uriBuilder.queryParam("type_id", filter.typeId()).queryParam("order_type", filter.orderType());
+                    }
+                    return uriBuilder.build(regionId);
                 })
-                .onErrorResume(error -> {
-                    // If we get a 404 or similar error, it likely means no more pages
-                    System.out.println("ESI PAGINATION COMPLETE:");
-                    System.out.println("  Total pages fetched: " + (page - 1));
-                    System.out.println("  Total orders: " + accumulator.size());
-                    System.out.println("  Stopped because: Error fetching page " + page + " - " + error.getMessage());
-                    return Mono.just(accumulator);
+                .headers(headers -> {
+                    if (cached != null && cached.etag() != null) {
+                        headers.setIfNoneMatch(cached.etag());
+                    }
+                })
+                .exchangeToMono(response -> {
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    requestScheduler.recordErrorLimit(headers);
+                    int totalPages = parseTotalPages(headers);
+                    Instant expires = parseExpires(headers);
+
+                    if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+                        System.out.println("ESI Page " + page + ": not modified (" + cached.orders().size() + " cached orders)");
+                        pageCache.put(regionId, filter, page, cached.revalidated(expires, totalPages));
+                        return Mono.just(new OrderPage(page, totalPages, cached.orders()));
+                    }
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+
+                    return DataBufferUtils.join(response.bodyToFlux(DataBuffer.class))
+                            .<OrderBook>handle((buffer, sink) -> {
+                                try (InputStream body = buffer.asInputStream(true)) {
+                                    sink.next(orderDecoder.decode(body, filter));
+                                } catch (IOException e) {
+                                    sink.error(e);
+                                }
+                            })
+                            .map(pageOrders -> {
+                                if (!filter.isTypeTargeted()) {
+                                    System.out.println("ESI Page " + page + ": " + pageOrders.size() + " orders");
+                                }
+                                pageCache.put(regionId, filter, page, new CachedPage(headers.getETag(), expires, totalPages, pageOrders));
+                                return new OrderPage(page, totalPages, pageOrders);
+                            })
+                            .defaultIfEmpty(new OrderPage(page, totalPages, OrderBook.empty()));
                 });
+
+        return hedged(regionId, page, withRetries(timed(request)))
+                .onErrorMap(error -> new IllegalStateException("ESI page " + page + " of region " + regionId
+                        + " could not be fetched, refusing to analyze an incomplete order book: " + error.getMessage(), error));
     }
 
-    public Mono<String> getTypeName(int typeId) {
-        return webClient.get()
-                .uri("/universe/types/{type_id}/", typeId)
+    /**
+     * Runs a request through the scheduler with a per-attempt timeout and retries transient
+     * failures (5xx, timeouts, connection errors) with exponential backoff.
+     */
+    private <T> Mono<T> withRetries(Mono<T> request) {
+        EveConfig.Esi esi = eveConfig.getEsi();
+        return Mono.defer(() -> requestScheduler.schedule(request.timeout(Duration.ofSeconds(esi.getPageTimeoutSeconds()))))
+                .retryWhen(Retry.backoff(esi.getPageRetries(), Duration.ofMillis(esi.getRetryBackoffMs()))
+                        .filter(this::isRetryable)
+                        .doBeforeRetry(signal -> System.out.println("Retrying ESI request (attempt "
+                                + (signal.totalRetries() + 2) + "): " + signal.failure().getMessage())));
+    }
+
+    /**
+     * Starts a duplicate of a page request once the primary has been outstanding longer than
+     * the configured latency percentile of recent page fetches; whichever answers first wins.
+     */
+    private Mono<OrderPage> hedged(long regionId, int page, Mono<OrderPage> attempt) {
+        Duration hedgeDelay = pageLatencies.percentile(eveConfig.getEsi().getHedgePercentile());
+        if (hedgeDelay == null) {
+            return attempt;
+        }
+        Mono<OrderPage> hedge = Mono.delay(hedgeDelay)
+                .doOnNext(tick -> System.out.println("Hedging slow ESI page " + page + " of region " + regionId
+                        + " after " + hedgeDelay.toMillis() + "ms"))
+                .then(attempt);
+        return Mono.firstWithValue(attempt, hedge);
+    }
+
+    private <T> Mono<T> timed(Mono<T> request) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return request.doOnSuccess(value -> pageLatencies.record((System.nanoTime() - startNanos) / 1_000_000));
+        });
+    }
+
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+
+    private Instant parseExpires(HttpHeaders headers) {
+        long expires = headers.getExpires();
+        return expires > 0 ? Instant.ofEpochMilli(expires) : Instant.now();
+    }
+
+    private int parseTotalPages(HttpHeaders headers) {
+        String pages = headers.getFirst("X-Pages");
+        if (pages == null) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(pages.trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Resolves type names with POST /universe/names/, up to 1000 ids per request.
+     * ESI rejects a whole batch with 404 if any id in it is invalid, so such batches are
+     * split in half until the invalid ids are isolated and dropped.
+     */
+    public Mono<Map<Integer, String>> getTypeNames(Collection<Integer> typeIds) {
+        List<Integer> ids = new ArrayList<>(typeIds);
+        List<List<Integer>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += NAMES_BATCH_SIZE) {
+            batches.add(ids.subList(i, Math.min(ids.size(), i + NAMES_BATCH_SIZE)));
+        }
+
+        return Flux.fromIterable(batches)
+                .flatMap(this::fetchNames)
+                .collectMap(NameInfo::getId, NameInfo::getName);
+    }
+
+    private Flux<NameInfo> fetchNames(List<Integer> ids) {
+        Mono<NameInfo[]> request = webClient.post()
+                .uri("/universe/names/")
+                .bodyValue(ids)
                 .retrieve()
-                .bodyToMono(TypeInfo.class)
-                .map(typeInfo -> typeInfo != null && typeInfo.getName() != null ? typeInfo.getName() : "Unknown Item")
-                .onErrorReturn("Unknown Item")
-                .defaultIfEmpty("Unknown Item");
+                .toEntity(NameInfo[].class)
+                .mapNotNull(response -> {
+                    requestScheduler.recordErrorLimit(response.getHeaders());
+                    return response.getBody();
+                });
+
+        return requestScheduler.schedule(request)
+                .flatMapMany(Flux::fromArray)
+                .filter(nameInfo -> nameInfo.getName() != null)
+                .onErrorResume(WebClientResponseException.NotFound.class, error -> {
+                    if (ids.size() == 1) {
+                        return Flux.empty();
+                    }
+                    int half = ids.size() / 2;
+                    return Flux.concat(fetchNames(ids.subList(0, half)), fetchNames(ids.subList(half, ids.size())));
+                })
+                .onErrorResume(error -> {
+                    System.out.println("Failed to resolve " + ids.size() + " type names from ESI: " + error.getMessage());
+                    return Flux.empty();
+                });
     }
 
-    private static class TypeInfo {
+    private record OrderPage(int page, int totalPages, OrderBook orders) {}
+
+    private static class NameInfo {
+        private int id;
         private String name;
+        private String category;
+
+        public int getId() { return id; }
+        public void setId(int id) { this.id = id; }
 
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
+
+        public String getCategory() { return category; }
+        public void setCategory(String category) { this.category = category; }
     }
 }
@@ -11,13 +11,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ItemNameService implements ApplicationRunner {
@@ -26,12 +32,18 @@ public class ItemNameService implements ApplicationRunner {
 
     private final EveConfig eveConfig;
     private final ItemNameRepository itemNameRepository;
+    private final EsiService esiService;
     private final ObjectMapper objectMapper;
 
+    // Dense typeId -> name dictionary, replaced as a whole on every change. Readers take the current array
+    // without locking; writers build a new array and publish it holding this service's monitor
+    private volatile String[] namesByTypeId = new String[0];
+
     @Autowired
-    public ItemNameService(EveConfig eveConfig, ItemNameRepository itemNameRepository) {
+    public ItemNameService(EveConfig eveConfig, ItemNameRepository itemNameRepository, EsiService esiService) {
         this.eveConfig = eveConfig;
         this.itemNameRepository = itemNameRepository;
+        this.esiService = esiService;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -42,6 +54,85 @@ public class ItemNameService implements ApplicationRunner {
             importItemNames();
         } else {
             logger.info("Item names import is disabled");
+            reloadDictionary();
+        }
+    }
+
+    /**
+     * Rebuilds the in-memory name dictionary from the item_names table. Runs under the same lock as
+     * {@link #addToDictionary}, which publishes and stores resolved names while holding it, so a reload
+     * can neither drop those names nor interleave with a half-built array.
+     */
+    public synchronized void reloadDictionary() {
+        List<ItemName> items = itemNameRepository.findAll();
+        int maxTypeId = 0;
+        for (ItemName item : items) {
+            maxTypeId = Math.max(maxTypeId, item.getTypeId());
+        }
+
+        String[] names = new String[maxTypeId + 1];
+        for (ItemName item : items) {
+            names[item.getTypeId()] = item.getName();
+        }
+        namesByTypeId = names;
+        logger.info("Loaded {} item names into dictionary (max type ID {})", items.size(), maxTypeId);
+    }
+
+    /**
+     * @return the name of the type, or null if it is not in the dictionary
+     */
+    public String getName(int typeId) {
+        String[] names = namesByTypeId;
+        return typeId >= 0 && typeId < names.length ? names[typeId] : null;
+    }
+
+    /**
+     * Resolves names for a set of type IDs. Names missing from the dictionary are fetched
+     * from ESI in a single batched /universe/names/ lookup and stored for later scans.
+     */
+    public Mono<Map<Integer, String>> resolveNames(Collection<Integer> typeIds) {
+        Map<Integer, String> resolved = new HashMap<>();
+        List<Integer> unknown = new ArrayList<>();
+        for (Integer typeId : typeIds) {
+            String name = getName(typeId);
+            if (name != null) {
+                resolved.put(typeId, name);
+            } else {
+                unknown.add(typeId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return Mono.just(resolved);
+        }
+
+        logger.info("Resolving {} unknown type names from ESI", unknown.size());
+        return esiService.getTypeNames(unknown)
+                // Storing the new names is blocking, keep it off the WebClient event loop
+                .publishOn(Schedulers.boundedElastic())
+                .map(fetched -> {
+                    if (!fetched.isEmpty()) {
+                        addToDictionary(fetched);
+                    }
+                    resolved.putAll(fetched);
+                    return resolved;
+                });
+    }
+
+    private synchronized void addToDictionary(Map<Integer, String> fetched) {
+        List<ItemName> newItems = new ArrayList<>();
+        String[] names = namesByTypeId;
+        int maxTypeId = fetched.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        String[] updated = Arrays.copyOf(names, Math.max(names.length, maxTypeId + 1));
+        fetched.forEach((typeId, name) -> {
+            updated[typeId] = name;
+            newItems.add(new ItemName(typeId, name));
+        });
+        namesByTypeId = updated;
+
+        try {
+            itemNameRepository.saveAll(newItems);
+        } catch (Exception e) {
+            logger.warn("Failed to store {} resolved item names: {}", newItems.size(), e.getMessage());
         }
     }
 
@@ -73,6 +164,7 @@ public class ItemNameService implements ApplicationRunner {
                     logger.info("Saving {} item names to database...", itemNames.size());
                     itemNameRepository.saveAll(itemNames);
                     logger.info("Successfully imported {} item names", itemNames.size());
+                    reloadDictionary();
                 } else {
                     logger.warn("No item names found in response");
                 }
@@ -82,6 +174,10 @@ public class ItemNameService implements ApplicationRunner {
         } catch (Exception e) {
             logger.error("Error importing item names: ", e);
         }
+
+        if (namesByTypeId.length == 0) {
+            reloadDictionary();
+        }
     }
 
     private List<ItemName> parseItemNames(String jsonData) throws Exception {
@@ -120,6 +216,7 @@ public class ItemNameService implements ApplicationRunner {
     }
 
     public ItemName getItemByTypeId(Integer typeId) {
-        return itemNameRepository.findByTypeId(typeId).orElse(null);
+        String name = getName(typeId);
+        return name != null ? new ItemName(typeId, name) : itemNameRepository.findByTypeId(typeId).orElse(null);
     }
 }
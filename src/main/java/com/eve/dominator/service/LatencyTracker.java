@@ -0,0 +1,40 @@
+package com.eve.dominator.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer of recent request latencies, used to derive the hedging delay
+ * from a latency percentile.
+ */
+public class LatencyTracker {
+
+    private final long[] samplesMillis;
+    private final int minSamples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int capacity, int minSamples) {
+        this.samplesMillis = new long[capacity];
+        this.minSamples = minSamples;
+    }
+
+    public synchronized void record(long latencyMillis) {
+        samplesMillis[next] = latencyMillis;
+        next = (next + 1) % samplesMillis.length;
+        count = Math.min(count + 1, samplesMillis.length);
+    }
+
+    /**
+     * @return the latency at the given percentile (0..1), or null while fewer than minSamples were recorded
+     */
+    public synchronized Duration percentile(double percentile) {
+        if (count < minSamples) {
+            return null;
+        }
+        long[] sorted = Arrays.copyOf(samplesMillis, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(count - 1, Math.ceil(percentile * count) - 1);
+        return Duration.ofMillis(sorted[Math.max(0, index)]);
+    }
+}
@@ -1,251 +1,340 @@
 package com.eve.dominator.service;
 
 import com.eve.dominator.config.EveConfig;
+import com.eve.dominator.model.BudgetSweepCell;
 import com.eve.dominator.model.MarketAnalysisResult;
-import com.eve.dominator.model.MarketOrder;
-import com.eve.dominator.model.MarketStatistics;
+import com.eve.dominator.model.MonopolyScanResult;
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.model.OrderFilter;
+import com.eve.dominator.model.ScanProgress;
+import com.eve.dominator.model.ScanSummary;
+import com.eve.dominator.model.StatisticsSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class MarketAnalysisService {
 
+    private static final int TOP_LOCATION_LIMIT = 10;
+    private static final String ANALYZE_PHASE = "Analyzing types";
+    private static final int STREAM_NAME_BATCH_SIZE = 50;
+    private static final Duration STREAM_NAME_BATCH_DELAY = Duration.ofMillis(250);
+    private static final String FETCH_FULL = "full";
+    private static final String FETCH_TARGETED = "targeted";
+
     private final EsiService esiService;
     private final EveConfig eveConfig;
     private final NpcDetectionService npcDetectionService;
     private final MokaamService mokaamService;
+    private final ItemNameService itemNameService;
 
     @Autowired
-    public MarketAnalysisService(EsiService esiService, EveConfig eveConfig, NpcDetectionService npcDetectionService, MokaamService mokaamService) {
+    public MarketAnalysisService(EsiService esiService, EveConfig eveConfig, NpcDetectionService npcDetectionService,
+                                 MokaamService mokaamService, ItemNameService itemNameService) {
         this.esiService = esiService;
         this.eveConfig = eveConfig;
         this.npcDetectionService = npcDetectionService;
         this.mokaamService = mokaamService;
+        this.itemNameService = itemNameService;
+    }
+
+    public Mono<MonopolyScanResult> analyzeMarkets(long regionId) {
+        return analyzeMarkets(regionId, ScanProgress.NONE);
+    }
+
+    /**
+     * Runs a monopoly scan, reporting page fetching and type analysis to the progress listener.
+     */
+    public Mono<MonopolyScanResult> analyzeMarkets(long regionId, ScanProgress progress) {
+        return analyzeMarkets(regionId, loadStationSnapshot(regionId, eveConfig.getStations().get(regionId), progress), progress);
     }
 
-    public Mono<List<MarketAnalysisResult>> analyzeMarkets(long regionId) {
+    /**
+     * Runs a monopoly scan on a station snapshot loaded elsewhere, e.g. one shared by concurrent scans of the region.
+     */
+    Mono<MonopolyScanResult> analyzeMarkets(long regionId, Mono<StationSnapshot> stationSnapshot, ScanProgress progress) {
         long stationId = eveConfig.getStations().get(regionId);
 
-        return esiService.getMarketOrders(regionId)
-                .map(orders -> filterOrdersByStation(orders, stationId))
-                .flatMap(orders -> analyzeOrdersByType(orders, regionId))
-                .doOnSuccess(results -> {
-                    // Show comprehensive summary at the END when everything is complete
-                    System.out.println("\n" + "=".repeat(80));
-                    System.out.println("🎉 MONOPOLY ANALYSIS COMPLETE 🎉");
-                    System.out.println("=".repeat(80));
-                    System.out.println("✅ Analysis completed. Found " + results.size() + " opportunities");
-                    System.out.println("");
-
-                    // Re-fetch orders to show the summary (this is quick since it's cached)
-                    esiService.getMarketOrders(regionId).subscribe(allOrders -> {
-                        List<MarketOrder> filteredOrders = filterOrdersByStation(allOrders, stationId);
-
-                        System.out.println("📊 FINAL SUMMARY:");
-                        System.out.println("   Total ESI orders fetched: " + allOrders.size());
-                        System.out.println("   Orders at Jita (sell orders): " + filteredOrders.size());
-                        System.out.println("   Target station ID: " + stationId);
-                        System.out.println("");
-
-                        // Show location distribution
-                        Map<Long, Long> locationCounts = allOrders.stream()
-                            .filter(order -> !order.isBuyOrder())
-                            .collect(Collectors.groupingBy(MarketOrder::getLocationId, Collectors.counting()));
-
-                        System.out.println("📍 Top 10 locations by order count (sell orders):");
-                        locationCounts.entrySet().stream()
-                            .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
-                            .limit(10)
-                            .forEach(entry -> System.out.println("   LocationID " + entry.getKey() + ": " + entry.getValue() + " orders"));
-
-                        // === DURATION ANALYSIS SECTION - EASY TO REMOVE ===
-                        System.out.println("");
-                        System.out.println("⏰ ORDER DURATION ANALYSIS:");
-
-                        // Count orders by duration
-                        Map<String, Long> durationCounts = filteredOrders.stream()
-                            .filter(order -> order.getDuration() != null && !order.getDuration().trim().isEmpty())
-                            .collect(Collectors.groupingBy(MarketOrder::getDuration, Collectors.counting()));
-
-                        System.out.println("   Duration distribution (Jita sell orders):");
-                        durationCounts.entrySet().stream()
-                            .sorted((e1, e2) -> {
-                                try {
-                                    return Integer.compare(Integer.parseInt(e1.getKey()), Integer.parseInt(e2.getKey()));
-                                } catch (NumberFormatException ex) {
-                                    return e1.getKey().compareTo(e2.getKey());
-                                }
-                            })
-                            .forEach(entry -> {
-                                String duration = entry.getKey();
-                                Long count = entry.getValue();
-                                String label = duration + " days";
-                                if (Integer.parseInt(duration) > 90) {
-                                    label += " (>90 - likely NPC)";
-                                } else if (Integer.parseInt(duration) == 90) {
-                                    label += " (max player duration)";
-                                }
-                                System.out.println("     " + label + ": " + count + " orders");
-                            });
-
-                        // Count potential NPC orders
-                        long potentialNpcOrders = filteredOrders.stream()
-                            .filter(order -> {
-                                try {
-                                    return order.getDuration() != null &&
-                                           Integer.parseInt(order.getDuration()) > 90;
-                                } catch (NumberFormatException e) {
-                                    return false;
-                                }
-                            })
-                            .count();
-
-                        System.out.println("   Potential NPC orders (duration > 90 days): " + potentialNpcOrders + " orders");
-                        // === END DURATION ANALYSIS SECTION ===
-
-                        System.out.println("=".repeat(80));
-                    });
+        // The summary is computed from the same snapshot as the results, so the region is downloaded once per scan
+        return stationSnapshot
+                .flatMap(snapshot -> analyzeOrdersByType(snapshot.orders(), snapshot.volumeFilter(), regionId, progress)
+                        .map(analysis -> new MonopolyScanResult(analysis.results(), analysis.sweep(),
+                                ScanSummary.of(snapshot.orders(), stationId, analysis.results().size(), TOP_LOCATION_LIMIT,
+                                        snapshot.fetchPlan()))))
+                .doOnSuccess(this::printSummary);
+    }
+
+    /**
+     * Emits the opportunities of a monopoly scan as soon as each type is solved, in completion order
+     * rather than by ROI. Names are resolved in small batches so results are not held back by ESI.
+     */
+    public Flux<MarketAnalysisResult> streamOpportunities(long regionId) {
+        return streamOpportunities(regionId, loadStationSnapshot(regionId, eveConfig.getStations().get(regionId), ScanProgress.NONE));
+    }
+
+    Flux<MarketAnalysisResult> streamOpportunities(long regionId, Mono<StationSnapshot> stationSnapshot) {
+        return stationSnapshot
+                .flatMapMany(snapshot -> solveTypes(snapshot.orders(), snapshot.volumeFilter(), regionId, ScanProgress.NONE))
+                .mapNotNull(TypeOpportunities::primary)
+                .bufferTimeout(STREAM_NAME_BATCH_SIZE, STREAM_NAME_BATCH_DELAY)
+                .concatMap(this::enrichWithTypeNames)
+                .flatMapIterable(results -> results);
+    }
+
+    /**
+     * Loads the region's volume prefilter, then fetches the station's sell orders the cheaper way:
+     * the whole region page by page, or one type_id request per type that passes the prefilter.
+     */
+    Mono<StationSnapshot> loadStationSnapshot(long regionId, long stationId, ScanProgress progress) {
+        // The prefilter is a blocking repository query, so it runs on boundedElastic rather than an event-loop thread
+        return Mono.fromCallable(() -> loadVolumeFilter(regionId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(prefilter -> {
+                    // Only sell orders at the target station are decoded; everything else is skipped while parsing
+                    OrderFilter filter = OrderFilter.sellOrdersAt(stationId);
+                    long statisticsVersion = prefilter.statisticsVersion();
+                    if (prefilter.qualifyingTypeIds() == null) {
+                        // Without volume statistics every type is a candidate, only the full region covers them
+                        return fetchStationOrders(regionId, filter, null, progress)
+                                .map(orders -> new StationSnapshot(orders, typeId -> true, FETCH_FULL, statisticsVersion));
+                    }
+
+                    BitSet candidates = prefilter.qualifyingTypeIds();
+                    return planFetch(regionId, filter, candidates.cardinality())
+                            .flatMap(plan -> fetchStationOrders(regionId, filter,
+                                    FETCH_TARGETED.equals(plan) ? candidates.stream().toArray() : null, progress)
+                                    .map(orders -> new StationSnapshot(orders, candidates::get, plan, statisticsVersion)));
                 });
     }
 
-    private List<MarketOrder> filterOrdersByStation(List<MarketOrder> orders, long stationId) {
-        System.out.println("=== ORDER FILTERING DEBUG ===");
-        System.out.println("Total orders received from ESI: " + orders.size());
-        System.out.println("Target station ID: " + stationId);
+    /**
+     * Picks the fetch plan for a scan. A full fetch costs the region's page count, a targeted one
+     * costs one weighted request per candidate type (usually a single page each); auto takes the cheaper.
+     */
+    private Mono<String> planFetch(long regionId, OrderFilter filter, int candidateTypes) {
+        EveConfig.Monopoly monopoly = eveConfig.getMonopoly();
+        String strategy = monopoly.getFetchStrategy() == null ? "auto" : monopoly.getFetchStrategy().toLowerCase(Locale.ROOT);
+        if (FETCH_FULL.equals(strategy) || FETCH_TARGETED.equals(strategy)) {
+            return Mono.just(strategy);
+        }
 
-        List<MarketOrder> filteredOrders = orders.stream()
-                .filter(order -> order.getLocationId() == stationId)
-                .filter(order -> !order.isBuyOrder()) // Only sell orders
-                .sorted(Comparator.comparing(MarketOrder::getPrice))
-                .collect(Collectors.toList());
+        // Page 1 is needed by a full fetch anyway and stays in the page cache, so asking costs nothing extra
+        return esiService.getOrderPageCount(regionId, filter)
+                .map(pages -> {
+                    double targetedCost = candidateTypes * monopoly.getTargetedRequestWeight();
+                    String plan = targetedCost < pages ? FETCH_TARGETED : FETCH_FULL;
+                    System.out.println("Fetch plan for region " + regionId + ": " + plan + " (" + pages + " region pages vs "
+                            + candidateTypes + " candidate types x " + monopoly.getTargetedRequestWeight() + ")");
+                    return plan;
+                });
+    }
 
-        System.out.println("Orders at target station (sell orders only): " + filteredOrders.size());
+    private Mono<OrderBook> fetchStationOrders(long regionId, OrderFilter filter, int[] typeIds, ScanProgress progress) {
+        Mono<OrderBook> orders = typeIds == null
+                ? esiService.getMarketOrders(regionId, filter, progress)
+                : esiService.getMarketOrdersForTypes(regionId, filter, typeIds, progress);
+        return orders.doOnNext(book -> System.out.println("Orders at target station " + filter.locationId()
+                + " (sell orders only): " + book.size()));
+    }
 
-        return filteredOrders;
+    private void printSummary(MonopolyScanResult scan) {
+        ScanSummary summary = scan.getSummary();
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("🎉 MONOPOLY ANALYSIS COMPLETE 🎉");
+        System.out.println("=".repeat(80));
+        System.out.println("✅ Analysis completed. Found " + summary.getOpportunitiesFound() + " opportunities");
+        System.out.println("");
+
+        System.out.println("📊 FINAL SUMMARY:");
+        System.out.println("   Total ESI orders fetched: " + summary.getTotalOrdersScanned());
+        System.out.println("   Orders at target station (sell orders): " + summary.getStationSellOrders());
+        System.out.println("   Target station ID: " + summary.getStationId());
+        System.out.println("   Fetch plan: " + summary.getFetchPlan());
+        System.out.println("");
+
+        System.out.println("📍 Top " + TOP_LOCATION_LIMIT + " locations by order count (sell orders):");
+        summary.getTopLocations().forEach(location ->
+                System.out.println("   LocationID " + location.getLocationId() + ": " + location.getSellOrders() + " orders"));
+
+        System.out.println("");
+        System.out.println("⏰ ORDER DURATION ANALYSIS:");
+        System.out.println("   Duration distribution (target station sell orders):");
+        summary.getDurationHistogram().forEach((duration, count) -> {
+            String label = duration + " days";
+            if (duration > ScanSummary.MAX_PLAYER_DURATION) {
+                label += " (>90 - likely NPC)";
+            } else if (duration == ScanSummary.MAX_PLAYER_DURATION) {
+                label += " (max player duration)";
+            }
+            System.out.println("     " + label + ": " + count + " orders");
+        });
+        System.out.println("   Potential NPC orders (duration > 90 days): " + summary.getPotentialNpcOrders() + " orders");
+
+        System.out.println("");
+        System.out.println("💰 BUDGET SWEEP:");
+        scan.getSweep().forEach(cell -> System.out.println("   " + cell.getBudgetMillions() + "M ISK @ " + cell.getRoiPercentage()
+                + "% ROI: " + cell.getOpportunities() + " opportunities"
+                + (cell.getBest() != null ? ", best " + cell.getBest().getItemName() + " (" + cell.getBest().getRoiPercentage() + "%)" : "")));
+
+        System.out.println("=".repeat(80));
+    }
+
+    private Mono<TypeAnalysis> analyzeOrdersByType(OrderBook orders, IntPredicate meetsVolumeRequirements, long regionId,
+                                                   ScanProgress progress) {
+        List<Double> sweepBudgets = eveConfig.getMonopoly().getSweepBudgetsMillions();
+        List<Double> sweepRois = eveConfig.getMonopoly().getSweepRoiPercentages();
+
+        return solveTypes(orders, meetsVolumeRequirements, regionId, progress)
+                // Rails finish in any order; sorting by type keeps ties in the sweep deterministic
+                .collectSortedList(Comparator.comparingInt(TypeOpportunities::typeId))
+                .flatMap(opportunities -> {
+                    List<MarketAnalysisResult> results = new ArrayList<>();
+                    List<BudgetSweepCell> sweep = new ArrayList<>();
+                    for (Double budget : sweepBudgets) {
+                        for (Double roi : sweepRois) {
+                            sweep.add(new BudgetSweepCell(budget, roi));
+                        }
+                    }
+
+                    for (TypeOpportunities opportunity : opportunities) {
+                        if (opportunity.primary() != null) {
+                            results.add(opportunity.primary());
+                        }
+                        for (int cell = 0; cell < sweep.size(); cell++) {
+                            if (opportunity.sweep()[cell] != null) {
+                                sweep.get(cell).add(opportunity.sweep()[cell]);
+                            }
+                        }
+                    }
+
+                    // Names are resolved once for the results and the best item of every sweep cell
+                    progress.update("Resolving item names", 0, 0);
+                    List<MarketAnalysisResult> toName = new ArrayList<>(results);
+                    sweep.stream().map(BudgetSweepCell::getBest).filter(Objects::nonNull).forEach(toName::add);
+                    return enrichWithTypeNames(toName).thenReturn(new TypeAnalysis(results.stream()
+                            .sorted(Comparator.comparing(MarketAnalysisResult::getRoiPercentage).reversed())
+                            .collect(Collectors.toList()), sweep));
+                });
     }
 
-    private Mono<List<MarketAnalysisResult>> analyzeOrdersByType(List<MarketOrder> orders, long regionId) {
-        Map<Integer, List<MarketOrder>> ordersByType = orders.stream()
-                .collect(Collectors.groupingBy(MarketOrder::getTypeId));
-
-        return Flux.fromIterable(ordersByType.entrySet())
-                .flatMap(entry -> {
-                    return meetsVolumeRequirementsAsync(entry.getKey(), regionId)
-                            .flatMap(meetsRequirements -> {
-                                if (!meetsRequirements) {
-                                    return Mono.empty();
-                                }
-                                MarketAnalysisResult result = calculateDominationOpportunity(entry.getKey(), entry.getValue(), regionId);
-                                if (result != null) {
-                                    return enrichWithTypeName(result);
-                                } else {
-                                    return Mono.empty();
-                                }
-                            });
-                }, 10) // Limit concurrency to 10 parallel requests
+    /**
+     * Re-solves only the given types of a station snapshot, for incremental re-analysis after the order
+     * book changed. Types that no longer have an opportunity are absent from the returned map.
+     */
+    Mono<Map<Integer, MarketAnalysisResult>> analyzeTypes(OrderBook orders, IntPredicate meetsVolumeRequirements,
+                                                          long regionId, int[] typeIds) {
+        return Flux.range(0, typeIds.length)
+                .map(index -> typeIds[index])
+                .filter(meetsVolumeRequirements::test)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(typeId -> {
+                    int typeIndex = orders.indexOfType(typeId);
+                    if (typeIndex < 0) {
+                        return Mono.empty(); // All of the type's orders are gone
+                    }
+                    return Mono.justOrEmpty(calculateDominationOpportunity(typeId, orders,
+                            orders.typeStart(typeIndex), orders.typeEnd(typeIndex), regionId))
+                            .mapNotNull(TypeOpportunities::primary);
+                })
+                .sequential()
                 .collectList()
-                .map(results -> results.stream()
-                        .sorted(Comparator.comparing(MarketAnalysisResult::getRoiPercentage).reversed())
-                        .collect(Collectors.toList()));
+                .flatMap(this::enrichWithTypeNames)
+                .map(results -> results.stream().collect(Collectors.toMap(MarketAnalysisResult::getTypeId, result -> result)));
+    }
+
+    /**
+     * Solves every type that passes the volume prefilter. Types are independent, so they run on the
+     * parallel scheduler with one rail per core and are emitted as soon as each one is done.
+     */
+    private Flux<TypeOpportunities> solveTypes(OrderBook orders, IntPredicate meetsVolumeRequirements, long regionId,
+                                               ScanProgress progress) {
+        // The volume prefilter is a bitset lookup, applying it up front gives the number of types to analyze
+        int[] candidateTypes = IntStream.range(0, orders.typeCount())
+                .filter(typeIndex -> meetsVolumeRequirements.test(orders.typeIdAt(typeIndex)))
+                .toArray();
+        AtomicInteger analyzed = new AtomicInteger();
+        progress.update(ANALYZE_PHASE, 0, candidateTypes.length);
+
+        return Flux.range(0, candidateTypes.length)
+                .map(candidate -> candidateTypes[candidate])
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(typeIndex -> Mono.justOrEmpty(calculateDominationOpportunity(orders.typeIdAt(typeIndex), orders,
+                        orders.typeStart(typeIndex), orders.typeEnd(typeIndex), regionId))
+                        .doFinally(signal -> progress.update(ANALYZE_PHASE, analyzed.incrementAndGet(), candidateTypes.length)))
+                .sequential();
     }
 
-    private Mono<MarketAnalysisResult> enrichWithTypeName(MarketAnalysisResult result) {
-        return esiService.getTypeName(result.getTypeId())
-                .map(itemName -> {
-                    result.setItemName(itemName);
-                    return result;
+    private Mono<List<MarketAnalysisResult>> enrichWithTypeNames(List<MarketAnalysisResult> results) {
+        Set<Integer> typeIds = results.stream().map(MarketAnalysisResult::getTypeId).collect(Collectors.toSet());
+        return itemNameService.resolveNames(typeIds)
+                .map(names -> {
+                    results.forEach(result -> result.setItemName(names.getOrDefault(result.getTypeId(), "Unknown Item")));
+                    return results;
                 })
-                .onErrorReturn(result); // Return the result even if type name fetch fails
+                .onErrorReturn(results); // Return the results even if name resolution fails
     }
 
-    private MarketAnalysisResult calculateDominationOpportunity(int typeId, List<MarketOrder> orders, long regionId) {
+    /**
+     * Solves one type for the configured investment and ROI and for every cell of the budget sweep.
+     * Returns null when the type cannot be dominated at all (fewer than two orders, ROI out of reach or NPC orders).
+     */
+    private TypeOpportunities calculateDominationOpportunity(int typeId, OrderBook book, int start, int end, long regionId) {
         double maxInvestment = eveConfig.getMonopoly().getMaxInvestmentMillions() * 1_000_000;
         double requiredRoi = eveConfig.getMonopoly().getTargetRoiPercentage();
         double taxRate = eveConfig.getMonopoly().getTaxPercentage() / 100.0;
 
-        // Apply NPC filtering if enabled - REJECT entire item if ANY NPC orders are detected
-        if (eveConfig.getMonopoly().isEnableNpcFiltering()) {
-            List<MarketOrder> originalOrders = new ArrayList<>(orders);
-            List<MarketOrder> filteredOrders = npcDetectionService.filterNpcOrders(orders, eveConfig.getMonopoly().getNpcConfidenceThreshold());
-
-            // If any orders were filtered out, it means NPC orders were detected
-            if (filteredOrders.size() < originalOrders.size()) {
-                int npcOrdersDetected = originalOrders.size() - filteredOrders.size();
-                System.out.println("=== SKIPPING ITEM: NPC orders detected ===");
-                System.out.println("TypeId " + typeId + ": Found " + npcOrdersDetected + " suspected NPC orders - cannot monopolize");
-                return null; // Skip this entire item - can't monopolize against NPCs
-            }
-            // If no NPC orders detected, continue with all original orders
-        }
-
-        // Sort orders by price (lowest first)
-        orders.sort(Comparator.comparing(MarketOrder::getPrice));
-
-        // Debug logging to understand what orders we're working with
-        System.out.println("=== DEBUG: Analyzing " + orders.size() + " orders for typeId " + typeId + " ===");
-        for (int i = 0; i < Math.min(10, orders.size()); i++) {
-            MarketOrder order = orders.get(i);
-            System.out.println("Order " + (i+1) + ": " + order.getVolumeRemain() + " @ " + order.getPrice() + " ISK (locationId: " + order.getLocationId() + ")");
-        }
+        List<Double> sweepBudgets = eveConfig.getMonopoly().getSweepBudgetsMillions();
+        List<Double> sweepRois = eveConfig.getMonopoly().getSweepRoiPercentages();
 
         // Need at least 2 orders to create a monopoly opportunity
-        if (orders.size() < 2) {
+        if (end - start < 2) {
             return null;
         }
 
-        MarketAnalysisResult bestOpportunity = null;
-        double runningCost = 0;
-        int runningItems = 0;
-
-        // Test each possible stopping point (after buying each order)
-        for (int stopIndex = 0; stopIndex < orders.size() - 1; stopIndex++) {
-            MarketOrder currentOrder = orders.get(stopIndex);
-            double orderCost = currentOrder.getPrice() * currentOrder.getVolumeRemain();
-
-            // Check if we can afford this order within investment limit
-            if (runningCost + orderCost > maxInvestment) {
-                // Try partial purchase with remaining budget
-                double remainingBudget = maxInvestment - runningCost;
-                int partialItems = (int) (remainingBudget / currentOrder.getPrice());
-
-                if (partialItems > 0) {
-                    double scenarioCost = runningCost + (partialItems * currentOrder.getPrice());
-                    int scenarioItems = runningItems + partialItems;
-                    double targetPrice = orders.get(stopIndex + 1).getPrice() - 0.01;
-                    double highestBuyPrice = currentOrder.getPrice(); // Price of the current (last) order being partially bought
-
-                    System.out.println("Testing partial scenario: buy " + scenarioItems + " items for " + scenarioCost + " ISK, target price: " + targetPrice);
-
-                    MarketAnalysisResult scenario = evaluateScenario(typeId, stopIndex + 1, scenarioItems, scenarioCost, targetPrice, requiredRoi, taxRate, highestBuyPrice);
-                    if (scenario != null && (bestOpportunity == null || scenario.getRoiPercentage() > bestOpportunity.getRoiPercentage())) {
-                        bestOpportunity = scenario;
-                    }
-                }
-                break; // Can't afford any more within investment limit
-            }
+        // Reject types whose best conceivable relist cannot reach the lowest ROI asked for, before any sorting
+        double lowestRequiredRoi = sweepRois.stream().mapToDouble(Double::doubleValue).reduce(requiredRoi, Math::min);
+        if (DominationSolver.roiUpperBound(book, start, end, taxRate) < lowestRequiredRoi) {
+            return null;
+        }
 
-            // We can afford this entire order
-            runningCost += orderCost;
-            runningItems += currentOrder.getVolumeRemain();
+        // Only the cheapest orders the largest budget can reach are put in price order
+        double largestBudget = sweepBudgets.stream().mapToDouble(budget -> budget * 1_000_000).reduce(maxInvestment, Math::max);
+        int[] orders = DominationSolver.selectCheapest(book, start, end, largestBudget);
 
-            // Target price is just below the next order
-            double targetPrice = orders.get(stopIndex + 1).getPrice() - 0.01;
-            double highestBuyPrice = currentOrder.getPrice(); // Price of the current (last) order being bought
+        // Relisting is limited to the orders the budget reaches, which rules out most types an outlier order let through
+        if (DominationSolver.reachableRoiUpperBound(book, orders, taxRate) < lowestRequiredRoi) {
+            return null;
+        }
 
-            System.out.println("Testing full scenario: buy " + runningItems + " items for " + runningCost + " ISK, target price: " + targetPrice);
+        // Apply NPC filtering if enabled - REJECT entire item if ANY NPC orders are detected
+        if (eveConfig.getMonopoly().isEnableNpcFiltering()) {
+            int npcOrdersDetected = npcDetectionService.countNpcOrders(book, start, end, eveConfig.getMonopoly().getNpcConfidenceThreshold());
 
-            MarketAnalysisResult scenario = evaluateScenario(typeId, stopIndex + 1, runningItems, runningCost, targetPrice, requiredRoi, taxRate, highestBuyPrice);
-            if (scenario != null && (bestOpportunity == null || scenario.getRoiPercentage() > bestOpportunity.getRoiPercentage())) {
-                bestOpportunity = scenario;
-                System.out.println("New best opportunity found with ROI: " + scenario.getRoiPercentage() + "%");
+            // Any suspected NPC order means the item cannot be monopolized
+            if (npcOrdersDetected > 0) {
+                System.out.println("=== SKIPPING ITEM: NPC orders detected ===");
+                System.out.println("TypeId " + typeId + ": Found " + npcOrdersDetected + " suspected NPC orders - cannot monopolize");
+                return null; // Skip this entire item - can't monopolize against NPCs
             }
+            // If no NPC orders detected, continue with all original orders
         }
 
+        // The prefix arrays are built once and then answer every budget of this scan
+        DominationSolver solver = DominationSolver.of(book, orders, taxRate);
+
+        MarketAnalysisResult bestOpportunity = evaluateCandidate(typeId, solver.bestWithin(maxInvestment), requiredRoi, taxRate);
         if (bestOpportunity != null) {
             System.out.println("=== FINAL RESULT ===");
             System.out.println("Orders: " + bestOpportunity.getOrdersToBeCleared());
@@ -255,7 +344,25 @@ public class MarketAnalysisService {
             System.out.println("ROI: " + bestOpportunity.getRoiPercentage() + "% (required: " + requiredRoi + "%)");
         }
 
-        return bestOpportunity;
+        // The best candidate within a budget does not depend on the ROI target, only whether it qualifies
+        MarketAnalysisResult[] sweep = new MarketAnalysisResult[sweepBudgets.size() * sweepRois.size()];
+        int cell = 0;
+        for (Double budget : sweepBudgets) {
+            DominationSolver.Candidate candidate = solver.bestWithin(budget * 1_000_000);
+            for (Double roi : sweepRois) {
+                sweep[cell++] = evaluateCandidate(typeId, candidate, roi, taxRate);
+            }
+        }
+
+        return new TypeOpportunities(typeId, bestOpportunity, sweep);
+    }
+
+    private MarketAnalysisResult evaluateCandidate(int typeId, DominationSolver.Candidate candidate, double requiredRoi, double taxRate) {
+        if (candidate == null) {
+            return null;
+        }
+        return evaluateScenario(typeId, candidate.ordersCleared(), candidate.totalItems(), candidate.totalCost(),
+                candidate.targetSellPrice(), requiredRoi, taxRate, candidate.highestBuyPrice());
     }
 
     private MarketAnalysisResult evaluateScenario(int typeId, int ordersCleared, int totalItems,
@@ -288,70 +395,85 @@ public class MarketAnalysisService {
     }
 
     /**
-     * Check if an item meets the minimum volume and market size requirements based on historical data
+     * Build the volume and market size prefilter for a region from the latest historical data of every
+     * type, read from the in-memory statistics snapshot. Types without historical data are rejected.
+     *
+     * @return the types whose historical volume meets the thresholds (null when the statistics are unavailable)
+     *         and the statistics version they were read from
      */
-    private Mono<Boolean> meetsVolumeRequirementsAsync(int typeId, Long regionId) {
-        return Mono.fromCallable(() -> {
-            try {
-                MarketStatistics latestStats = mokaamService.getLatestStatisticsForItem(typeId, regionId);
-                if (latestStats == null) {
-                    // No historical data available, ignore this item
-                    return false;
+    private VolumePrefilter loadVolumeFilter(long regionId) {
+        try {
+            VolumeThresholds thresholds = VolumeThresholds.forRegion(eveConfig.getMonopoly(), regionId);
+            StatisticsSnapshot latestStats = mokaamService.getStatisticsSnapshot(regionId);
+
+            BitSet qualifyingTypeIds = new BitSet();
+            for (int slot = 0; slot < latestStats.size(); slot++) {
+                if (latestStats.typeIdAt(slot) >= 0 && thresholds.isMetBy(latestStats, slot)) {
+                    qualifyingTypeIds.set(latestStats.typeIdAt(slot));
                 }
+            }
 
-                // Check monthly volume requirement (region-specific with fallback to global)
-                Long monthlyVolume = latestStats.getVolumeMonth();
-                if (monthlyVolume != null && monthlyVolume < eveConfig.getMonopoly().getMinVolumeMonth(regionId)) {
-                    return false;
-                }
+            System.out.println("Volume prefilter: " + qualifyingTypeIds.cardinality() + " of " + latestStats.size()
+                    + " types with historical data qualify in region " + regionId);
+            return new VolumePrefilter(qualifyingTypeIds, latestStats.version());
+        } catch (Exception e) {
+            // If there's an error checking requirements, don't filter out any item
+            System.out.println("Volume prefilter unavailable for region " + regionId + ": " + e.getMessage());
+            return new VolumePrefilter(null, StationSnapshot.UNKNOWN_STATISTICS_VERSION);
+        }
+    }
 
-                // Check quarterly volume requirement (region-specific with fallback to global)
-                Long quarterlyVolume = latestStats.getVolumeQuarter();
-                if (quarterlyVolume != null && quarterlyVolume < eveConfig.getMonopoly().getMinVolumeQuarter(regionId)) {
-                    return false;
-                }
+    private record VolumePrefilter(BitSet qualifyingTypeIds, long statisticsVersion) {
+    }
 
-                // Check yearly volume requirement (region-specific with fallback to global)
-                Long yearlyVolume = latestStats.getVolumeYear();
-                if (yearlyVolume != null && yearlyVolume < eveConfig.getMonopoly().getMinVolumeYear(regionId)) {
-                    return false;
-                }
+    /**
+     * The station's sell orders with the volume prefilter they were fetched for, the fetch plan used and
+     * the statistics version the prefilter was built from.
+     */
+    record StationSnapshot(OrderBook orders, IntPredicate volumeFilter, String fetchPlan, long statisticsVersion) {
 
-                // Check monthly market size requirement (convert millions to ISK)
-                Double monthlyAvgPrice = latestStats.getAveragePriceMonth();
-                if (monthlyVolume != null && monthlyAvgPrice != null) {
-                    double monthlyMarketSizeISK = monthlyVolume * monthlyAvgPrice;
-                    double requiredMarketSizeISK = eveConfig.getMonopoly().getMinMarketSizeMonth(regionId) * 1_000_000.0;
-                    if (monthlyMarketSizeISK < requiredMarketSizeISK) {
-                        return false;
-                    }
-                }
+        // The prefilter could not be built and lets every type through
+        static final long UNKNOWN_STATISTICS_VERSION = -1L;
+    }
 
-                // Check quarterly market size requirement (convert millions to ISK)
-                Double quarterlyAvgPrice = latestStats.getAveragePriceQuarter();
-                if (quarterlyVolume != null && quarterlyAvgPrice != null) {
-                    double quarterlyMarketSizeISK = quarterlyVolume * quarterlyAvgPrice;
-                    double requiredMarketSizeISK = eveConfig.getMonopoly().getMinMarketSizeQuarter(regionId) * 1_000_000.0;
-                    if (quarterlyMarketSizeISK < requiredMarketSizeISK) {
-                        return false;
-                    }
-                }
+    private record TypeOpportunities(int typeId, MarketAnalysisResult primary, MarketAnalysisResult[] sweep) {
+    }
 
-                // Check yearly market size requirement (convert millions to ISK)
-                Double yearlyAvgPrice = latestStats.getAveragePriceYear();
-                if (yearlyVolume != null && yearlyAvgPrice != null) {
-                    double yearlyMarketSizeISK = yearlyVolume * yearlyAvgPrice;
-                    double requiredMarketSizeISK = eveConfig.getMonopoly().getMinMarketSizeYear(regionId) * 1_000_000.0;
-                    if (yearlyMarketSizeISK < requiredMarketSizeISK) {
-                        return false;
-                    }
-                }
+    private record TypeAnalysis(List<MarketAnalysisResult> results, List<BudgetSweepCell> sweep) {
+    }
+
+    /**
+     * Volume and market size thresholds of the monopoly scan, resolved once per region
+     * (region-specific with fallback to global, market sizes converted from millions to ISK).
+     */
+    private record VolumeThresholds(long minVolumeMonth, long minVolumeQuarter, long minVolumeYear,
+                                    double minMarketSizeMonth, double minMarketSizeQuarter, double minMarketSizeYear) {
+
+        static VolumeThresholds forRegion(EveConfig.Monopoly monopoly, long regionId) {
+            return new VolumeThresholds(
+                    monopoly.getMinVolumeMonth(regionId),
+                    monopoly.getMinVolumeQuarter(regionId),
+                    monopoly.getMinVolumeYear(regionId),
+                    monopoly.getMinMarketSizeMonth(regionId) * 1_000_000.0,
+                    monopoly.getMinMarketSizeQuarter(regionId) * 1_000_000.0,
+                    monopoly.getMinMarketSizeYear(regionId) * 1_000_000.0);
+        }
+
+        boolean isMetBy(StatisticsSnapshot stats, int slot) {
+            return meetsPeriod(stats.volumeMonth(slot), stats.averagePriceMonth(slot), minVolumeMonth, minMarketSizeMonth)
+                    && meetsPeriod(stats.volumeQuarter(slot), stats.averagePriceQuarter(slot), minVolumeQuarter, minMarketSizeQuarter)
+                    && meetsPeriod(stats.volumeYear(slot), stats.averagePriceYear(slot), minVolumeYear, minMarketSizeYear);
+        }
 
-                return true; // All volume and market size requirements are met
-            } catch (Exception e) {
-                // If there's an error checking requirements, don't filter out the item
+        // Missing values do not disqualify an item, matching the per-field checks of the original filter
+        private static boolean meetsPeriod(long volume, double averagePrice, long minVolume, double minMarketSize) {
+            if (volume == StatisticsSnapshot.MISSING_VOLUME) {
                 return true;
             }
-        });
+            if (volume < minVolume) {
+                return false;
+            }
+            return Double.isNaN(averagePrice) || volume * averagePrice >= minMarketSize;
+        }
     }
 }
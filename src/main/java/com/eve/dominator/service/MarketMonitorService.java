@@ -0,0 +1,183 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.config.EveConfig;
+import com.eve.dominator.model.LiveMarketView;
+import com.eve.dominator.model.MarketAnalysisResult;
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.model.OrderBookDiff;
+import com.eve.dominator.model.OrderFilter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps a live opportunity table per region. Each region in eve.regions is re-polled when
+ * its ESI order pages expire. The new station snapshot is diffed against the previous one by
+ * orderId, and only types with added, removed or changed orders are solved again. When an import
+ * published a new statistics version since the last poll, the volume prefilter may have changed
+ * for any type, so the whole table is solved again instead. Readers get the last complete table
+ * immediately.
+ */
+@Service
+public class MarketMonitorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketMonitorService.class);
+
+    // Poll a moment after the pages expire so ESI has the new snapshot
+    private static final Duration EXPIRY_GRACE = Duration.ofSeconds(1);
+
+    private final MarketAnalysisService marketAnalysisService;
+    private final ScanJobService scanJobService;
+    private final EsiPageCache pageCache;
+    private final EveConfig eveConfig;
+
+    private final Map<Long, LiveMarketView> views = new ConcurrentHashMap<>();
+    // Per-region state, only touched by that region's polling loop
+    private final Map<Long, OrderBook> snapshots = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Integer, MarketAnalysisResult>> opportunities = new ConcurrentHashMap<>();
+    private final Map<Long, Long> statisticsVersions = new ConcurrentHashMap<>();
+
+    private volatile Disposable monitor;
+
+    @Autowired
+    public MarketMonitorService(MarketAnalysisService marketAnalysisService, ScanJobService scanJobService,
+                                EsiPageCache pageCache, EveConfig eveConfig) {
+        this.marketAnalysisService = marketAnalysisService;
+        this.scanJobService = scanJobService;
+        this.pageCache = pageCache;
+        this.eveConfig = eveConfig;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!eveConfig.getMonitor().isEnabled()) {
+            logger.info("Live market monitor is disabled");
+            return;
+        }
+        List<Long> regions = eveConfig.getRegions().stream()
+                .filter(regionId -> eveConfig.getStations().containsKey(regionId))
+                .toList();
+        logger.info("Starting live market monitor for regions {}", regions);
+        monitor = Flux.fromIterable(regions)
+                .flatMap(this::monitorRegion)
+                .subscribe();
+    }
+
+    public Optional<LiveMarketView> getView(long regionId) {
+        return Optional.ofNullable(views.get(regionId));
+    }
+
+    public Collection<LiveMarketView> getViews() {
+        return views.values();
+    }
+
+    private Mono<Void> monitorRegion(long regionId) {
+        return Mono.defer(() -> pollRegion(regionId))
+                .onErrorResume(error -> {
+                    Duration retry = Duration.ofSeconds(eveConfig.getMonitor().getErrorRetrySeconds());
+                    logger.warn("Live monitor poll failed for region {}, retrying in {}s: {}", regionId, retry.toSeconds(), error.getMessage());
+                    Instant nextPoll = Instant.now().plus(retry);
+                    views.compute(regionId, (id, view) -> view != null
+                            ? view.withError(error.getMessage(), nextPoll)
+                            : new LiveMarketView(regionId, eveConfig.getStations().get(regionId), List.of(), 0, 0, 0, 0, 0, 0,
+                                    null, nextPoll, error.getMessage()));
+                    return Mono.just(retry);
+                })
+                .flatMap(Mono::delay)
+                .repeat()
+                .then();
+    }
+
+    /**
+     * Polls one region and re-analyzes the changed types. The poll is admitted against the scan memory
+     * budget and shares the station snapshot with any scan of the region loading it at the same time.
+     *
+     * @return the delay until the next poll
+     */
+    Mono<Duration> pollRegion(long regionId) {
+        long stationId = eveConfig.getStations().get(regionId);
+
+        return scanJobService.scanSnapshot(regionId, snapshot -> {
+            OrderBook current = snapshot.orders();
+            OrderBook previous = snapshots.getOrDefault(regionId, OrderBook.empty());
+            OrderBookDiff diff = OrderBookDiff.between(previous, current);
+
+            // Types whose orders did not change still move in or out of the prefilter with new statistics
+            Long previousVersion = statisticsVersions.get(regionId);
+            boolean statisticsChanged = previousVersion != null && previousVersion != snapshot.statisticsVersion();
+            int[] changedTypeIds = statisticsChanged
+                    ? IntStream.range(0, current.typeCount()).map(current::typeIdAt).toArray()
+                    : diff.changedTypeIds();
+            if (statisticsChanged) {
+                logger.info("Live monitor region {}: statistics version {} -> {}, re-analyzing all {} types",
+                        regionId, previousVersion, snapshot.statisticsVersion(), changedTypeIds.length);
+            }
+
+            return marketAnalysisService.analyzeTypes(current, snapshot.volumeFilter(), regionId, changedTypeIds)
+                    .map(updated -> {
+                        Map<Integer, MarketAnalysisResult> table = statisticsChanged
+                                ? new HashMap<>()
+                                : new HashMap<>(opportunities.getOrDefault(regionId, Map.of()));
+                        for (int typeId : changedTypeIds) {
+                            table.remove(typeId);
+                        }
+                        table.putAll(updated);
+
+                        snapshots.put(regionId, current);
+                        opportunities.put(regionId, table);
+                        statisticsVersions.put(regionId, snapshot.statisticsVersion());
+
+                        List<MarketAnalysisResult> sorted = new ArrayList<>(table.values());
+                        sorted.sort(Comparator.comparingDouble(MarketAnalysisResult::getRoiPercentage).reversed());
+
+                        Duration delay = nextPollDelay(regionId, stationId);
+                        Instant now = Instant.now();
+                        views.put(regionId, new LiveMarketView(regionId, stationId, sorted, current.size(),
+                                changedTypeIds.length, updated.size(), diff.addedOrders(), diff.removedOrders(),
+                                diff.modifiedOrders(), now, now.plus(delay), null));
+
+                        logger.info("Live monitor region {}: {} orders added, {} removed, {} modified; {} types re-analyzed, {} opportunities",
+                                regionId, diff.addedOrders(), diff.removedOrders(), diff.modifiedOrders(),
+                                changedTypeIds.length, table.size());
+                        return delay;
+                    });
+        });
+    }
+
+    private Duration nextPollDelay(long regionId, long stationId) {
+        Duration minInterval = Duration.ofSeconds(eveConfig.getMonitor().getMinIntervalSeconds());
+        Instant expires = pageCache.expiresAt(regionId, OrderFilter.sellOrdersAt(stationId));
+        if (expires == null) {
+            return minInterval;
+        }
+        Duration untilExpiry = Duration.between(Instant.now(), expires).plus(EXPIRY_GRACE);
+        return untilExpiry.compareTo(minInterval) > 0 ? untilExpiry : minInterval;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable running = monitor;
+        if (running != null) {
+            running.dispose();
+        }
+    }
+}
@@ -2,52 +2,143 @@ package com.eve.dominator.service;
 
 import com.eve.dominator.config.EveConfig;
 import com.eve.dominator.model.MarketStatistics;
+import com.eve.dominator.model.StatisticsSnapshot;
+import com.eve.dominator.model.LatestMarketStatistics;
+import com.eve.dominator.repository.LatestMarketStatisticsRepository;
+import com.eve.dominator.repository.MarketStatisticsBatchWriter;
 import com.eve.dominator.repository.MarketStatisticsRepository;
+import com.eve.dominator.repository.StatisticsVersionRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class MokaamService {
 
     private static final Logger logger = LoggerFactory.getLogger(MokaamService.class);
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int ERROR_PREVIEW_BYTES = 500;
 
     private final EveConfig eveConfig;
     private final MarketStatisticsRepository statisticsRepository;
+    private final MarketStatisticsBatchWriter statisticsWriter;
+    private final StatisticsVersionRepository versionRepository;
+    private final LatestMarketStatisticsRepository latestStatisticsRepository;
+    private final StatisticsCache statisticsCache;
     private final ObjectMapper objectMapper;
 
     @Autowired
-    public MokaamService(EveConfig eveConfig, MarketStatisticsRepository statisticsRepository) {
+    public MokaamService(EveConfig eveConfig, MarketStatisticsRepository statisticsRepository,
+                         MarketStatisticsBatchWriter statisticsWriter, StatisticsVersionRepository versionRepository,
+                         LatestMarketStatisticsRepository latestStatisticsRepository, StatisticsCache statisticsCache) {
         this.eveConfig = eveConfig;
         this.statisticsRepository = statisticsRepository;
+        this.statisticsWriter = statisticsWriter;
+        this.versionRepository = versionRepository;
+        this.latestStatisticsRepository = latestStatisticsRepository;
+        this.statisticsCache = statisticsCache;
         this.objectMapper = new ObjectMapper();
     }
 
-    @Transactional
+    /**
+     * Refreshes a region's statistics as a new dataset version: rows are staged as they are parsed and
+     * the version is published once complete, so readers keep seeing the previous version meanwhile.
+     * A failed refresh is discarded and fails the returned Mono; the published version stays current.
+     */
     public Mono<String> importHistoricalData(Long regionId) {
         logger.info("Starting Mokaam data import for region {}", regionId);
 
-        return Mono.fromRunnable(() -> {
-            // Clear existing data for this region
-            logger.info("Clearing existing data for region {}", regionId);
-            statisticsRepository.deleteByRegionId(regionId);
-        })
-        .then(fetchMokaamData(regionId))
-        .doOnSuccess(result -> logger.info("Mokaam data import completed for region {}", regionId))
-        .doOnError(error -> logger.error("Mokaam data import failed for region {}: ", regionId, error));
+        return fetchMokaamData(regionId)
+                .doOnSuccess(result -> logger.info("Mokaam data import completed for region {}", regionId))
+                .doOnError(error -> logger.error("Mokaam data import failed for region {}: ", regionId, error));
+    }
+
+    /**
+     * Imports several regions with up to eve.mokaam.import-concurrency imports in flight, so the
+     * next region downloads while the previous one is still being parsed and written.
+     * Results are emitted in region order as "regionId: message". A failed region does not stop the
+     * others; the Flux fails with the region's error once every region is done.
+     */
+    public Flux<String> importHistoricalData(List<Long> regionIds) {
+        int concurrency = Math.max(1, eveConfig.getMokaam().getImportConcurrency());
+        return Flux.fromIterable(regionIds)
+                .flatMapSequentialDelayError(regionId -> importHistoricalData(regionId)
+                                .map(result -> regionId + ": " + result)
+                                .onErrorMap(error -> new IllegalStateException("Region " + regionId + ": " + error.getMessage(), error)),
+                        concurrency, 1);
     }
 
+    /**
+     * Runs the import of one region as a pipeline: the response is parsed while it downloads, parsed
+     * rows are grouped into chunks and handed to the upsert writer through a queue of
+     * eve.mokaam.write-queue-chunks chunks. When the writer falls behind the queue fills up and
+     * parsing (and with it the download) pauses, so memory stays bounded.
+     */
     private Mono<String> fetchMokaamData(Long regionId) {
+        int chunkSize = Math.max(1, eveConfig.getMokaam().getImportChunkSize());
+        int writeQueueChunks = Math.max(1, eveConfig.getMokaam().getWriteQueueChunks());
+
+        // The refresh stages the region's next dataset version; closing it unpublished discards what was staged
+        return Mono.using(() -> statisticsWriter.beginRefresh(regionId),
+                        refresh -> openMokaamStream(regionId)
+                                .flatMap(body -> parseStatistics(body, regionId)
+                                        .buffer(chunkSize)
+                                        .publishOn(Schedulers.boundedElastic(), writeQueueChunks)
+                                        .doOnNext(chunk -> {
+                                            logger.debug("Upserting {} historical records for region {}", chunk.size(), regionId);
+                                            refresh.upsertChunk(chunk);
+                                        })
+                                        .then(Mono.fromCallable(() -> publishRefresh(refresh, regionId))))
+                                .onErrorResume(error -> Mono.defer(() -> {
+                                    Optional<Long> published = versionRepository.findPublishedVersion(regionId);
+                                    if (published.isPresent()) {
+                                        // Closing the refresh unpublished discards the staged rows
+                                        logger.warn("Mokaam import failed for region {}, keeping published version {}: {}",
+                                                regionId, published.get(), error.getMessage());
+                                        return Mono.error(error);
+                                    }
+                                    logger.warn("Mokaam import failed for region {} without published statistics, seeding mock data: {}",
+                                            regionId, error.getMessage());
+                                    return generateMockDataFallback(refresh, regionId);
+                                })),
+                        MarketStatisticsBatchWriter.RegionRefresh::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private String publishRefresh(MarketStatisticsBatchWriter.RegionRefresh refresh, Long regionId) {
+        if (refresh.getRowsSeen() == 0) {
+            // Nothing usable was parsed, the published version is better than an empty one
+            logger.warn("No valid data found in JSON for region {}", regionId);
+            return "No valid data found in Mokaam JSON - existing data kept";
+        }
+        int stale = refresh.closeStaleRows();
+        refresh.publish();
+        statisticsCache.rebuild(regionId);
+        logger.info("Successfully parsed {} market statistics records ({} written, {} stale removed)",
+                refresh.getRowsSeen(), refresh.getRowsWritten(), stale);
+        return String.format("Successfully imported %d historical records from Mokaam for region %d"
+                        + " (%d new or changed, %d stale removed, version %d)",
+                refresh.getRowsSeen(), regionId, refresh.getRowsWritten(), stale, refresh.getNextVersion());
+    }
+
+    private Mono<InputStream> openMokaamStream(Long regionId) {
         String apiUrl = String.format("/API/market/all?regionid=%d", regionId);
         String fullUrl = eveConfig.getMokaam().getBaseUrl() + apiUrl;
 
@@ -55,6 +146,7 @@ public class MokaamService {
 
         // Use blocking approach for large data transfers
         return Mono.fromCallable(() -> {
+            java.net.http.HttpResponse<InputStream> response;
             try {
                 java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
                     .connectTimeout(java.time.Duration.ofSeconds(30))
@@ -67,190 +159,216 @@ public class MokaamService {
                     .timeout(java.time.Duration.ofMinutes(5))
                     .build();
 
-                java.net.http.HttpResponse<String> response = client.send(request,
-                    java.net.http.HttpResponse.BodyHandlers.ofString());
-
-                if (response.statusCode() == 200) {
-                    String jsonData = response.body();
-                    logger.info("Successfully fetched {} characters of JSON data", jsonData.length());
-                    logger.debug("JSON data preview (first 500 chars): {}",
-                            jsonData.length() > 500 ? jsonData.substring(0, 500) + "..." : jsonData);
-                    return jsonData;
-                } else {
-                    throw new RuntimeException("HTTP " + response.statusCode() + ": " + response.body());
-                }
-
+                // The body is consumed as a stream while it downloads instead of being buffered into a String
+                response = client.send(request, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
             } catch (Exception e) {
                 logger.error("Failed to fetch from Mokaam using HttpClient: {}", e.getMessage());
                 throw new RuntimeException(e);
             }
-        })
-        .flatMap(jsonData -> processJsonData(jsonData, regionId))
-        .onErrorResume(error -> {
-            logger.warn("Mokaam API call failed, falling back to mock data: {}", error.getMessage());
-            return generateMockDataFallback(regionId);
-        });
-    }
 
-    private Mono<String> processJsonData(String jsonData, Long regionId) {
-        return Mono.fromCallable(() -> {
-            logger.info("Processing JSON data for region {}, data length: {}", regionId, jsonData.length());
-            logger.debug("JSON data preview (first 500 chars): {}",
-                    jsonData.length() > 500 ? jsonData.substring(0, 500) + "..." : jsonData);
-
-            List<MarketStatistics> statistics = parseJsonData(jsonData, regionId);
-
-            if (!statistics.isEmpty()) {
-                logger.info("Saving {} historical records for region {}", statistics.size(), regionId);
-                statisticsRepository.saveAll(statistics);
-                return String.format("Successfully imported %d historical records from Mokaam for region %d",
-                        statistics.size(), regionId);
-            } else {
-                logger.warn("No valid data found in JSON for region {}", regionId);
-                return "No valid data found in Mokaam JSON - using mock data instead";
+            if (response.statusCode() != 200) {
+                try (InputStream body = response.body()) {
+                    String errorPreview = new String(body.readNBytes(ERROR_PREVIEW_BYTES), StandardCharsets.UTF_8);
+                    throw new RuntimeException("HTTP " + response.statusCode() + ": " + errorPreview);
+                }
             }
-        });
+            return response.body();
+        })
+        .subscribeOn(Schedulers.boundedElastic());
     }
 
-    private List<MarketStatistics> parseJsonData(String jsonData, Long regionId) {
-        List<MarketStatistics> statistics = new ArrayList<>();
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-        try {
-            JsonNode rootNode = objectMapper.readTree(jsonData);
-
-            if (rootNode.isObject()) {
-                // Iterate over each type ID in the JSON object
-                rootNode.fieldNames().forEachRemaining(typeIdStr -> {
+    /**
+     * Parses the Mokaam response with the streaming token API as it arrives, emitting one row per
+     * item. Only the current item is materialized as a tree, so heap use does not grow with the size
+     * of the payload. A parse error fails the stream, so the import is discarded rather than published
+     * with only the rows read before it.
+     */
+    private Flux<MarketStatistics> parseStatistics(InputStream body, Long regionId) {
+        return Flux.using(
+                () -> objectMapper.getFactory().createParser(body),
+                parser -> Flux.<MarketStatistics, JsonToken>generate(() -> {
+                    JsonToken rootToken = parser.nextToken();
+                    if (rootToken != JsonToken.START_OBJECT && rootToken != JsonToken.START_ARRAY) {
+                        logger.warn("Expected JSON object or array but got: {}", rootToken);
+                    }
+                    return rootToken;
+                }, (rootToken, sink) -> {
                     try {
-                        JsonNode itemNode = rootNode.get(typeIdStr);
-
-                        // Extract fields from Mokaam API response
-                        String dateStr = itemNode.has("last_data") ? itemNode.get("last_data").asText() : null;
-                        Integer typeId = itemNode.has("typeid") ? itemNode.get("typeid").asInt() : null;
-
-                        // Skip records with invalid date values
-                        if (dateStr == null || dateStr.equals("ERROR: 404") || dateStr.equals("Null") || dateStr.trim().isEmpty()) {
-                            return; // Skip this record
+                        MarketStatistics stats = nextStatistics(parser, rootToken, regionId);
+                        if (stats != null) {
+                            sink.next(stats);
+                        } else {
+                            sink.complete();
                         }
-
-                        // Validate essential fields
-                        if (typeId != null) {
-                            LocalDate date = LocalDate.parse(dateStr, dateFormatter);
-                            MarketStatistics stats = new MarketStatistics(typeId, regionId, date);
-
-                            // Yesterday's data
-                            stats.setAveragePrice(getDoubleValue(itemNode, "avg_price_yesterday"));
-                            stats.setHighestPrice(getDoubleValue(itemNode, "high_yesterday"));
-                            stats.setLowestPrice(getDoubleValue(itemNode, "low_yesterday"));
-                            stats.setVolume(getLongValue(itemNode, "vol_yesterday"));
-                            stats.setOrderCount(getIntegerValue(itemNode, "order_count_yesterday"));
-                            stats.setSizeYesterday(getDoubleValue(itemNode, "size_yesterday"));
-
-                            // Weekly data
-                            stats.setVolumeWeek(getLongValue(itemNode, "vol_week"));
-                            stats.setAveragePriceWeek(getDoubleValue(itemNode, "avg_price_week"));
-                            stats.setOrderCountWeek(getIntegerValue(itemNode, "order_count_week"));
-                            stats.setHighWeek(getDoubleValue(itemNode, "high_week"));
-                            stats.setLowWeek(getDoubleValue(itemNode, "low_week"));
-                            stats.setSpreadWeek(getDoubleValue(itemNode, "spread_week"));
-                            stats.setVwapWeek(getDoubleValue(itemNode, "vwap_week"));
-                            stats.setStdDevWeek(getDoubleValue(itemNode, "std_dev_week"));
-                            stats.setSizeWeek(getDoubleValue(itemNode, "size_week"));
-
-                            // Monthly data
-                            stats.setVolumeMonth(getLongValue(itemNode, "vol_month"));
-                            stats.setAveragePriceMonth(getDoubleValue(itemNode, "avg_price_month"));
-                            stats.setOrderCountMonth(getIntegerValue(itemNode, "order_count_month"));
-                            stats.setHighMonth(getDoubleValue(itemNode, "high_month"));
-                            stats.setLowMonth(getDoubleValue(itemNode, "low_month"));
-                            stats.setSpreadMonth(getDoubleValue(itemNode, "spread_month"));
-                            stats.setVwapMonth(getDoubleValue(itemNode, "vwap_month"));
-                            stats.setStdDevMonth(getDoubleValue(itemNode, "std_dev_month"));
-                            stats.setSizeMonth(getDoubleValue(itemNode, "size_month"));
-
-                            // Quarterly data
-                            stats.setVolumeQuarter(getLongValue(itemNode, "vol_quarter"));
-                            stats.setAveragePriceQuarter(getDoubleValue(itemNode, "avg_price_quarter"));
-                            stats.setOrderCountQuarter(getIntegerValue(itemNode, "order_count_quarter"));
-                            stats.setHighQuarter(getDoubleValue(itemNode, "high_quarter"));
-                            stats.setLowQuarter(getDoubleValue(itemNode, "low_quarter"));
-                            stats.setSpreadQuarter(getDoubleValue(itemNode, "spread_quarter"));
-                            stats.setVwapQuarter(getDoubleValue(itemNode, "vwap_quarter"));
-                            stats.setStdDevQuarter(getDoubleValue(itemNode, "std_dev_quarter"));
-                            stats.setSizeQuarter(getDoubleValue(itemNode, "size_quarter"));
-
-                            // Yearly data
-                            stats.setVolumeYear(getLongValue(itemNode, "vol_year"));
-                            stats.setAveragePriceYear(getDoubleValue(itemNode, "avg_price_year"));
-                            stats.setOrderCountYear(getIntegerValue(itemNode, "order_count_year"));
-                            stats.setHighYear(getDoubleValue(itemNode, "high_year"));
-                            stats.setLowYear(getDoubleValue(itemNode, "low_year"));
-                            stats.setSpreadYear(getDoubleValue(itemNode, "spread_year"));
-                            stats.setVwapYear(getDoubleValue(itemNode, "vwap_year"));
-                            stats.setStdDevYear(getDoubleValue(itemNode, "std_dev_year"));
-                            stats.setSizeYear(getDoubleValue(itemNode, "size_year"));
-
-                            // 52-week data
-                            stats.setWeek52High(getDoubleValue(itemNode, "_52w_high"));
-                            stats.setWeek52Low(getDoubleValue(itemNode, "_52w_low"));
-
-                            statistics.add(stats);
-                        }
-
                     } catch (Exception e) {
-                        logger.debug("Failed to parse JSON item for type {}: {}", typeIdStr, e.getMessage());
+                        logger.error("Error processing JSON data: ", e);
+                        sink.error(e);
                     }
-                });
-
-                logger.info("Successfully parsed {} market statistics records", statistics.size());
-            } else if (rootNode.isArray()) {
-                // Keep the old array parsing logic as fallback
-                for (JsonNode itemNode : rootNode) {
+                    return rootToken;
+                }),
+                parser -> {
                     try {
-                        // Extract fields from JSON - adjust field names based on actual Mokaam API response
-                        String dateStr = itemNode.has("date") ? itemNode.get("date").asText() : null;
-                        Integer typeId = itemNode.has("type_id") ? itemNode.get("type_id").asInt() : null;
-                        Double averagePrice = itemNode.has("average_price") ? itemNode.get("average_price").asDouble() : null;
-                        Double highestPrice = itemNode.has("highest_price") ? itemNode.get("highest_price").asDouble() : null;
-                        Double lowestPrice = itemNode.has("lowest_price") ? itemNode.get("lowest_price").asDouble() : null;
-                        Long volume = itemNode.has("volume") ? itemNode.get("volume").asLong() : null;
-                        Integer orderCount = itemNode.has("order_count") ? itemNode.get("order_count").asInt() : null;
-
-                        // Validate essential fields
-                        if (dateStr != null && typeId != null) {
-                            LocalDate date = LocalDate.parse(dateStr, dateFormatter);
-
-                            MarketStatistics stats = new MarketStatistics(typeId, regionId, date);
-                            stats.setAveragePrice(averagePrice);
-                            stats.setHighestPrice(highestPrice);
-                            stats.setLowestPrice(lowestPrice);
-                            stats.setVolume(volume);
-                            stats.setOrderCount(orderCount);
-
-                            statistics.add(stats);
-                        }
-
-                    } catch (Exception e) {
-                        logger.warn("Failed to parse JSON item: {} - Error: {}", itemNode.toString(), e.getMessage());
+                        parser.close(); // Also closes the response body
+                    } catch (IOException e) {
+                        logger.debug("Failed to close Mokaam response for region {}: {}", regionId, e.getMessage());
                     }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Advances the parser to the next item that maps to a statistics row.
+     *
+     * @return the row, or null at the end of the document
+     */
+    private MarketStatistics nextStatistics(JsonParser parser, JsonToken rootToken, Long regionId) throws IOException {
+        if (rootToken == JsonToken.START_OBJECT) {
+            // Iterate over each type ID in the JSON object
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String typeIdStr = parser.getCurrentName();
+                parser.nextToken();
+                MarketStatistics stats = parseObjectItem(typeIdStr, objectMapper.readTree(parser), regionId);
+                if (stats != null) {
+                    return stats;
+                }
+            }
+        } else if (rootToken == JsonToken.START_ARRAY) {
+            // Keep the old array parsing logic as fallback
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                MarketStatistics stats = parseArrayItem(objectMapper.readTree(parser), regionId);
+                if (stats != null) {
+                    return stats;
                 }
-            } else {
-                logger.warn("Expected JSON object or array but got: {}", rootNode.getNodeType());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps one item of the Mokaam object format, keyed by type ID. Returns null for items without usable data.
+     */
+    private MarketStatistics parseObjectItem(String typeIdStr, JsonNode itemNode, Long regionId) {
+        if (itemNode == null || !itemNode.isObject()) {
+            return null;
+        }
+        try {
+            // Extract fields from Mokaam API response
+            String dateStr = itemNode.has("last_data") ? itemNode.get("last_data").asText() : null;
+            Integer typeId = itemNode.has("typeid") ? itemNode.get("typeid").asInt() : null;
+
+            // Skip records with invalid date values
+            if (dateStr == null || dateStr.equals("ERROR: 404") || dateStr.equals("Null") || dateStr.trim().isEmpty()) {
+                return null; // Skip this record
+            }
+
+            // Validate essential fields
+            if (typeId != null) {
+                LocalDate date = LocalDate.parse(dateStr, DATE_FORMATTER);
+                MarketStatistics stats = new MarketStatistics(typeId, regionId, date);
+
+                // Yesterday's data
+                stats.setAveragePrice(getDoubleValue(itemNode, "avg_price_yesterday"));
+                stats.setHighestPrice(getDoubleValue(itemNode, "high_yesterday"));
+                stats.setLowestPrice(getDoubleValue(itemNode, "low_yesterday"));
+                stats.setVolume(getLongValue(itemNode, "vol_yesterday"));
+                stats.setOrderCount(getIntegerValue(itemNode, "order_count_yesterday"));
+                stats.setSizeYesterday(getDoubleValue(itemNode, "size_yesterday"));
+
+                // Weekly data
+                stats.setVolumeWeek(getLongValue(itemNode, "vol_week"));
+                stats.setAveragePriceWeek(getDoubleValue(itemNode, "avg_price_week"));
+                stats.setOrderCountWeek(getIntegerValue(itemNode, "order_count_week"));
+                stats.setHighWeek(getDoubleValue(itemNode, "high_week"));
+                stats.setLowWeek(getDoubleValue(itemNode, "low_week"));
+                stats.setSpreadWeek(getDoubleValue(itemNode, "spread_week"));
+                stats.setVwapWeek(getDoubleValue(itemNode, "vwap_week"));
+                stats.setStdDevWeek(getDoubleValue(itemNode, "std_dev_week"));
+                stats.setSizeWeek(getDoubleValue(itemNode, "size_week"));
+
+                // Monthly data
+                stats.setVolumeMonth(getLongValue(itemNode, "vol_month"));
+                stats.setAveragePriceMonth(getDoubleValue(itemNode, "avg_price_month"));
+                stats.setOrderCountMonth(getIntegerValue(itemNode, "order_count_month"));
+                stats.setHighMonth(getDoubleValue(itemNode, "high_month"));
+                stats.setLowMonth(getDoubleValue(itemNode, "low_month"));
+                stats.setSpreadMonth(getDoubleValue(itemNode, "spread_month"));
+                stats.setVwapMonth(getDoubleValue(itemNode, "vwap_month"));
+                stats.setStdDevMonth(getDoubleValue(itemNode, "std_dev_month"));
+                stats.setSizeMonth(getDoubleValue(itemNode, "size_month"));
+
+                // Quarterly data
+                stats.setVolumeQuarter(getLongValue(itemNode, "vol_quarter"));
+                stats.setAveragePriceQuarter(getDoubleValue(itemNode, "avg_price_quarter"));
+                stats.setOrderCountQuarter(getIntegerValue(itemNode, "order_count_quarter"));
+                stats.setHighQuarter(getDoubleValue(itemNode, "high_quarter"));
+                stats.setLowQuarter(getDoubleValue(itemNode, "low_quarter"));
+                stats.setSpreadQuarter(getDoubleValue(itemNode, "spread_quarter"));
+                stats.setVwapQuarter(getDoubleValue(itemNode, "vwap_quarter"));
+                stats.setStdDevQuarter(getDoubleValue(itemNode, "std_dev_quarter"));
+                stats.setSizeQuarter(getDoubleValue(itemNode, "size_quarter"));
+
+                // Yearly data
+                stats.setVolumeYear(getLongValue(itemNode, "vol_year"));
+                stats.setAveragePriceYear(getDoubleValue(itemNode, "avg_price_year"));
+                stats.setOrderCountYear(getIntegerValue(itemNode, "order_count_year"));
+                stats.setHighYear(getDoubleValue(itemNode, "high_year"));
+                stats.setLowYear(getDoubleValue(itemNode, "low_year"));
+                stats.setSpreadYear(getDoubleValue(itemNode, "spread_year"));
+                stats.setVwapYear(getDoubleValue(itemNode, "vwap_year"));
+                stats.setStdDevYear(getDoubleValue(itemNode, "std_dev_year"));
+                stats.setSizeYear(getDoubleValue(itemNode, "size_year"));
+
+                // 52-week data
+                stats.setWeek52High(getDoubleValue(itemNode, "_52w_high"));
+                stats.setWeek52Low(getDoubleValue(itemNode, "_52w_low"));
+
+                return stats;
             }
         } catch (Exception e) {
-            logger.error("Error processing JSON data: ", e);
-            logger.debug("JSON data preview: {}", jsonData.length() > 200 ? jsonData.substring(0, 200) + "..." : jsonData);
+            logger.debug("Failed to parse JSON item for type {}: {}", typeIdStr, e.getMessage());
         }
+        return null;
+    }
+
+    private MarketStatistics parseArrayItem(JsonNode itemNode, Long regionId) {
+        try {
+            // Extract fields from JSON - adjust field names based on actual Mokaam API response
+            String dateStr = itemNode.has("date") ? itemNode.get("date").asText() : null;
+            Integer typeId = itemNode.has("type_id") ? itemNode.get("type_id").asInt() : null;
+            Double averagePrice = itemNode.has("average_price") ? itemNode.get("average_price").asDouble() : null;
+            Double highestPrice = itemNode.has("highest_price") ? itemNode.get("highest_price").asDouble() : null;
+            Double lowestPrice = itemNode.has("lowest_price") ? itemNode.get("lowest_price").asDouble() : null;
+            Long volume = itemNode.has("volume") ? itemNode.get("volume").asLong() : null;
+            Integer orderCount = itemNode.has("order_count") ? itemNode.get("order_count").asInt() : null;
+
+            // Validate essential fields
+            if (dateStr != null && typeId != null) {
+                LocalDate date = LocalDate.parse(dateStr, DATE_FORMATTER);
 
-        return statistics;
+                MarketStatistics stats = new MarketStatistics(typeId, regionId, date);
+                stats.setAveragePrice(averagePrice);
+                stats.setHighestPrice(highestPrice);
+                stats.setLowestPrice(lowestPrice);
+                stats.setVolume(volume);
+                stats.setOrderCount(orderCount);
+                return stats;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to parse JSON item: {} - Error: {}", itemNode.toString(), e.getMessage());
+        }
+        return null;
     }
 
-    private Mono<String> generateMockDataFallback(Long regionId) {
+    private Mono<String> generateMockDataFallback(MarketStatisticsBatchWriter.RegionRefresh refresh, Long regionId) {
         return Mono.fromCallable(() -> {
             List<MarketStatistics> mockData = generateMockHistoricalData(regionId);
             logger.info("Saving {} mock historical records for region {}", mockData.size(), regionId);
-            statisticsRepository.saveAll(mockData);
+            // Only reached for a region without a published version; whatever the failed import staged is dropped
+            refresh.discard();
+            refresh.upsertChunk(mockData);
+            refresh.closeStaleRows();
+            refresh.publish();
+            statisticsCache.rebuild(regionId);
             return String.format("Mokaam unavailable - generated %d mock historical records for region %d",
                     mockData.size(), regionId);
         });
@@ -354,39 +472,82 @@ public class MokaamService {
         }
     }
 
+    /**
+     * @return the statistics version readers of the region currently see. A scan that makes several
+     *         queries pins this once and passes it to each of them, so an import publishing meanwhile
+     *         cannot mix two versions into one result.
+     */
+    public long getPublishedVersion(Long regionId) {
+        return versionRepository.findPublishedVersion(regionId).orElse(0L);
+    }
+
     public boolean hasStatisticalData(Integer typeId, Long regionId) {
         LocalDate thirtyDaysAgo = LocalDate.now().minusDays(30);
-        return !statisticsRepository.findRecentStatistics(typeId, regionId, thirtyDaysAgo).isEmpty();
+        return statisticsRepository.existsRecentStatistics(typeId, regionId, thirtyDaysAgo, getPublishedVersion(regionId));
     }
 
     public Double getAverageVolume(Integer typeId, Long regionId, int days) {
         LocalDate fromDate = LocalDate.now().minusDays(days);
-        return statisticsRepository.getAverageVolume(typeId, regionId, fromDate).orElse(0.0);
+        return statisticsRepository.getAverageVolume(typeId, regionId, fromDate, getPublishedVersion(regionId)).orElse(0.0);
     }
 
     public Double getAveragePrice(Integer typeId, Long regionId, int days) {
         LocalDate fromDate = LocalDate.now().minusDays(days);
-        return statisticsRepository.getAveragePrice(typeId, regionId, fromDate).orElse(0.0);
+        return statisticsRepository.getAveragePrice(typeId, regionId, fromDate, getPublishedVersion(regionId)).orElse(0.0);
     }
 
     public long getStatisticsCount(Long regionId) {
-        return statisticsRepository.countByRegionId(regionId);
+        return statisticsRepository.countByRegionId(regionId, getPublishedVersion(regionId));
     }
 
     public MarketStatistics getLatestStatisticsForItem(Integer typeId, Long regionId) {
-        List<MarketStatistics> stats = statisticsRepository.findByTypeIdAndRegionIdOrderByDateDesc(typeId, regionId);
-        logger.debug("Query for typeId={}, regionId={} returned {} results", typeId, regionId, stats.size());
-        if (!stats.isEmpty()) {
-            MarketStatistics latest = stats.get(0);
-            logger.debug("Latest stats: date={}, avgPrice={}, volume={}",
-                        latest.getDate(), latest.getAveragePrice(), latest.getVolume());
-            return latest;
+        return getLatestStatisticsForItem(typeId, regionId, getPublishedVersion(regionId));
+    }
+
+    /**
+     * Finds the type's latest row id in the statistics cache when it holds the requested version, or
+     * in latest_market_statistics otherwise, then loads the row by primary key.
+     */
+    public MarketStatistics getLatestStatisticsForItem(Integer typeId, Long regionId, long version) {
+        Optional<Long> statisticsId;
+        StatisticsSnapshot snapshot = statisticsCache.get(regionId);
+        if (snapshot.version() == version) {
+            int slot = snapshot.slotOf(typeId);
+            statisticsId = slot >= 0 ? Optional.of(snapshot.statisticsId(slot)) : Optional.empty();
+        } else {
+            statisticsId = latestStatisticsRepository.findById(new LatestMarketStatistics.Key(regionId, version, typeId))
+                    .map(LatestMarketStatistics::getStatisticsId);
         }
-        return null;
+
+        MarketStatistics latest = statisticsId.flatMap(statisticsRepository::findById).orElse(null);
+        if (latest != null) {
+            logger.debug("Latest stats for typeId={}, regionId={}: date={}, avgPrice={}, volume={}",
+                        typeId, regionId, latest.getDate(), latest.getAveragePrice(), latest.getVolume());
+        }
+        return latest;
+    }
+
+    /**
+     * Availability check answered from the statistics cache, without loading the full statistics row.
+     */
+    public boolean hasLatestStatistics(Integer typeId, Long regionId) {
+        return statisticsCache.get(regionId).slotOf(typeId) >= 0;
+    }
+
+    /**
+     * @return the in-memory snapshot of the region's latest statistics at its published version. A scan
+     *         that holds on to it reads one version throughout, without any further database access.
+     */
+    public StatisticsSnapshot getStatisticsSnapshot(Long regionId) {
+        return statisticsCache.get(regionId);
     }
 
     public List<Integer> getSampleTypeIds(Long regionId, int limit) {
-        return statisticsRepository.findDistinctTypeIdsByRegionId(regionId, limit);
+        return getTypeIds(regionId, limit, getPublishedVersion(regionId));
+    }
+
+    public List<Integer> getTypeIds(Long regionId, int limit, long version) {
+        return latestStatisticsRepository.findTypeIds(regionId, version, limit);
     }
 
     public long getStatisticsCountForTypeId(Integer typeId) {
@@ -394,6 +555,6 @@ public class MokaamService {
     }
 
     public java.time.LocalDate getLastRefreshDate(Long regionId) {
-        return statisticsRepository.findLatestDateByRegionId(regionId).orElse(null);
+        return statisticsRepository.findLatestDateByRegionId(regionId, getPublishedVersion(regionId)).orElse(null);
     }
 }
@@ -1,17 +1,13 @@
 package com.eve.dominator.service;
 
-import com.eve.dominator.model.MarketOrder;
+import com.eve.dominator.model.OrderBook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-
 /**
  * Simplified NPC Order Detection Service
- * Uses only duration criteria: orders with duration >= 90 days are considered NPC
+ * Uses only duration criteria: orders with duration > 90 days are considered NPC
  */
 @Service
 public class NpcDetectionService {
@@ -20,69 +16,51 @@ public class NpcDetectionService {
 
     /**
      * Calculate NPC confidence score for a single order
-     * @param order The market order to analyze
-     * @param allOrdersForItem All orders for the same item type (unused in simplified version)
-     * @return Confidence score: 1.0 if duration >= 90 days, 0.0 otherwise
+     * @param orders The order book holding the order
+     * @param row Row of the order within the book
+     * @return Confidence score: 1.0 if duration > 90 days, 0.0 otherwise
      */
-    public double calculateNpcScore(MarketOrder order, List<MarketOrder> allOrdersForItem) {
-        return calculateDurationScore(order);
+    public double calculateNpcScore(OrderBook orders, int row) {
+        return calculateDurationScore(orders, row);
     }
 
     /**
-     * Filter orders by removing those above the NPC confidence threshold
-     * @param orders List of orders to filter
+     * Count the orders in a row range whose NPC confidence reaches the threshold
+     * @param orders Order book to inspect
+     * @param start First row (inclusive)
+     * @param end Last row (exclusive)
      * @param confidenceThreshold Threshold above which orders are considered NPC
-     * @return Filtered list with suspected NPC orders removed
+     * @return Number of suspected NPC orders in the range
      */
-    public List<MarketOrder> filterNpcOrders(List<MarketOrder> orders, double confidenceThreshold) {
-        if (orders.isEmpty()) {
-            return new ArrayList<>(orders);
-        }
-
-        List<MarketOrder> filteredOrders = orders.stream()
-                .filter(order -> {
-                    double npcScore = calculateNpcScore(order, orders);
-                    boolean isNpc = npcScore >= confidenceThreshold;
-                    if (isNpc) {
-                        logger.debug("Filtering suspected NPC order: {} (duration: {} days, score: {})",
-                                order.getOrderId(), order.getDuration(), npcScore);
-                    }
-                    return !isNpc;
-                })
-                .collect(Collectors.toList());
-
-        int removedCount = orders.size() - filteredOrders.size();
-        if (removedCount > 0) {
-            logger.info("Filtered {} suspected NPC orders out of {} total orders (threshold: {})",
-                    removedCount, orders.size(), confidenceThreshold);
+    public int countNpcOrders(OrderBook orders, int start, int end, double confidenceThreshold) {
+        int npcOrders = 0;
+        for (int row = start; row < end; row++) {
+            double npcScore = calculateNpcScore(orders, row);
+            if (npcScore >= confidenceThreshold) {
+                logger.debug("Suspected NPC order: {} (duration: {} days, score: {})",
+                        orders.orderId(row), orders.duration(row), npcScore);
+                npcOrders++;
+            }
         }
-
-        return filteredOrders;
+        return npcOrders;
     }
 
-    private double calculateDurationScore(MarketOrder order) {
-        try {
-            // If duration field is null or empty, treat as non-NPC
-            if (order.getDuration() == null || order.getDuration().trim().isEmpty()) {
-                System.out.println("DEBUG NPC: Order " + order.getOrderId() + " - No duration data, treating as non-NPC");
-                return 0.0;
-            }
-
-            int duration = Integer.parseInt(order.getDuration());
-
-            // Simple rule: original duration > 90 days = NPC order
-            // Players can only create orders with max 90 days, NPCs often use 365+ days
-            if (duration > 90) {
-                System.out.println("DEBUG NPC: Order " + order.getOrderId() + " - Flagged as NPC: original duration " + duration + " days > 90 days (player max)");
-                return 1.0; // Definitely NPC
-            }
+    private double calculateDurationScore(OrderBook orders, int row) {
+        int duration = orders.duration(row);
 
-            System.out.println("DEBUG NPC: Order " + order.getOrderId() + " - Not NPC: original duration " + duration + " days <= 90 days (player range)");
-            return 0.0; // Not NPC
+        // If duration is missing or could not be parsed, treat as non-NPC
+        if (duration == OrderBook.UNKNOWN_DURATION) {
+            logger.trace("Order {} - No duration data, treating as non-NPC", orders.orderId(row));
+            return 0.0;
+        }
 
-        } catch (NumberFormatException e) {
-            System.out.println("DEBUG NPC: Order " + order.getOrderId() + " - Could not parse duration '" + order.getDuration() + "', treating as non-NPC");
-            return 0.0; // If we can't parse duration, assume it's not NPC
+        // Simple rule: original duration > 90 days = NPC order
+        // Players can only create orders with max 90 days, NPCs often use 365+ days
+        if (duration > 90) {
+            logger.trace("Order {} - Flagged as NPC: original duration {} days > 90 days (player max)", orders.orderId(row), duration);
+            return 1.0; // Definitely NPC
         }
+
+        return 0.0; // Not NPC
     }
 }
@@ -0,0 +1,316 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.config.EveConfig;
+import com.eve.dominator.model.MarketAnalysisResult;
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.model.OrderFilter;
+import com.eve.dominator.model.ScanJob;
+import com.eve.dominator.model.ScanProgress;
+import com.eve.dominator.service.MarketAnalysisService.StationSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs monopoly scans and Mokaam imports as background jobs on a bounded executor, so
+ * controllers return a job id right away instead of blocking a request thread for minutes.
+ * Jobs report their phase and progress while they run and keep their result once finished.
+ * <p>
+ * Submissions for the same work (job type, region and scan parameters) coalesce onto the job
+ * already queued or running. Streamed scans and live monitor polls go through this service as
+ * well: identical streams share one scan, and every scan of a region that starts while another
+ * one is loading the region's station snapshot reuses that load, so concurrent requests never
+ * download a region twice.
+ * <p>
+ * Every scan reserves its estimated memory from a global budget before it starts. Scan jobs wait
+ * for their reservation while still queued and are only handed to a worker once admitted.
+ */
+@Service
+public class ScanJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobService.class);
+
+    private final MarketAnalysisService marketAnalysisService;
+    private final MokaamService mokaamService;
+    private final EsiService esiService;
+    private final EsiPageCache pageCache;
+    private final EveConfig eveConfig;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final Map<String, ScanJob> jobs = new ConcurrentHashMap<>();
+    // Jobs queued or running, by the work they do, and the number of them waiting for admission; guarded by inFlight
+    private final Map<JobKey, ScanJob> inFlight = new HashMap<>();
+    private int awaitingAdmission;
+    // Streamed scans in progress, shared by identical requests; guarded by itself
+    private final Map<JobKey, Flux<MarketAnalysisResult>> streams = new HashMap<>();
+    // Station snapshots being loaded, by region, joined by every scan of the region that starts meanwhile
+    private final Map<Long, Mono<StationSnapshot>> snapshotLoads = new ConcurrentHashMap<>();
+    private final ScanMemoryBudget scanMemory;
+
+    @Autowired
+    public ScanJobService(MarketAnalysisService marketAnalysisService, MokaamService mokaamService, EsiService esiService,
+                          EsiPageCache pageCache, EveConfig eveConfig) {
+        this.marketAnalysisService = marketAnalysisService;
+        this.mokaamService = mokaamService;
+        this.esiService = esiService;
+        this.pageCache = pageCache;
+        this.eveConfig = eveConfig;
+
+        EveConfig.Jobs config = eveConfig.getJobs();
+        this.scanMemory = new ScanMemoryBudget(config.getScanMemoryBudgetMb());
+        this.queueCapacity = Math.max(1, config.getQueueCapacity());
+        int threads = Math.max(1, config.getMaxConcurrentJobs());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "scan-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        logger.info("ScanJobService initialized with {} workers, a queue of {} jobs and a scan memory budget of {}MB",
+                threads, queueCapacity, scanMemory.getBudgetMb());
+    }
+
+    /**
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public ScanJob submitMonopolyScan(long regionId) {
+        return submit(new JobKey(ScanJob.Type.MONOPOLY_SCAN, regionId, scanParameters()), job -> admitScan(regionId, job),
+                job -> marketAnalysisService.analyzeMarkets(regionId, loadSnapshot(regionId, job), job).block());
+    }
+
+    /**
+     * Streams a monopoly scan's opportunities as they are found. A request for a scan that is already
+     * streaming joins it and first receives the opportunities found so far; the scan is admitted
+     * against the memory budget like a job and stops once its last subscriber is gone.
+     */
+    public Flux<MarketAnalysisResult> streamMonopolyScan(long regionId) {
+        JobKey key = new JobKey(ScanJob.Type.MONOPOLY_SCAN, regionId, scanParameters());
+        return Flux.defer(() -> {
+            synchronized (streams) {
+                return streams.computeIfAbsent(key, k -> {
+                    logger.info("Starting streamed scan for region {}", regionId);
+                    return admitted(regionId, ScanProgress.NONE,
+                            marketAnalysisService.streamOpportunities(regionId, loadSnapshot(regionId, ScanProgress.NONE)))
+                            .doFinally(signal -> {
+                                synchronized (streams) {
+                                    streams.remove(k);
+                                }
+                            })
+                            .replay()
+                            .refCount();
+                });
+            }
+        });
+    }
+
+    /**
+     * Loads the region's station snapshot (sharing a load already in progress) and analyzes it, with
+     * the whole poll admitted against the scan memory budget. Used by the live monitor.
+     */
+    <T> Mono<T> scanSnapshot(long regionId, Function<StationSnapshot, Mono<T>> analysis) {
+        return admitted(regionId, ScanProgress.NONE, loadSnapshot(regionId, ScanProgress.NONE).flatMap(analysis).flux()).next();
+    }
+
+    /**
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public ScanJob submitImport(long regionId) {
+        return submit(new JobKey(ScanJob.Type.MOKAAM_IMPORT, regionId, List.of()), job -> Mono.just(0), job -> {
+            job.update("Importing region " + regionId, 0, 1);
+            return mokaamService.importHistoricalData(regionId).block();
+        });
+    }
+
+    /**
+     * Imports all configured import regions in a single job, with eve.mokaam.import-concurrency
+     * regions in flight at once.
+     *
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public ScanJob submitImportAll() {
+        return submit(new JobKey(ScanJob.Type.MOKAAM_IMPORT_ALL, null, List.of()), job -> Mono.just(0), job -> {
+            List<Long> regions = eveConfig.getImportRegions();
+            AtomicInteger imported = new AtomicInteger();
+            job.update("Importing regions", 0, regions.size());
+            List<String> results = mokaamService.importHistoricalData(regions)
+                    .doOnNext(result -> job.update("Importing regions", imported.incrementAndGet(), regions.size()))
+                    .collectList()
+                    .block();
+            return "All regions imported successfully:\n" + String.join("\n", results);
+        });
+    }
+
+    public Optional<ScanJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * @return all retained jobs, newest first
+     */
+    public List<ScanJob> getJobs() {
+        List<ScanJob> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparing(ScanJob::getCreatedAt).reversed());
+        return all;
+    }
+
+    /**
+     * Registers the job, reserves what admission asks for (megabytes of the scan memory budget, 0 for
+     * none) and only then hands the job to a worker. Jobs waiting for admission count against the
+     * queue capacity like jobs in the executor queue.
+     */
+    private ScanJob submit(JobKey key, Function<ScanJob, Mono<Integer>> admission, Function<ScanJob, Object> work) {
+        ScanJob job;
+        synchronized (inFlight) {
+            ScanJob existing = inFlight.get(key);
+            if (existing != null) {
+                logger.info("Coalesced {} request for region {} onto job {}", key.type(), key.regionId(), existing.getId());
+                return existing;
+            }
+            int queued = awaitingAdmission + executor.getQueue().size();
+            if (queued >= queueCapacity) {
+                logger.warn("Rejected {} job for region {}: {} jobs already queued", key.type(), key.regionId(), queued);
+                throw new RejectedExecutionException(queued + " jobs already queued");
+            }
+
+            job = new ScanJob(UUID.randomUUID().toString(), key.type(), key.regionId());
+            inFlight.put(key, job);
+            jobs.put(job.getId(), job);
+            awaitingAdmission++;
+        }
+        logger.info("Queued {} job {} for region {}", key.type(), job.getId(), key.regionId());
+        evictFinishedJobs();
+
+        admission.apply(job).subscribe(
+                megabytes -> dispatch(key, job, work, megabytes),
+                error -> {
+                    synchronized (inFlight) {
+                        awaitingAdmission--;
+                        inFlight.remove(key, job);
+                    }
+                    logger.error("{} job {} could not be admitted: ", job.getType(), job.getId(), error);
+                    job.markFailed(error.getMessage());
+                });
+        return job;
+    }
+
+    private void dispatch(JobKey key, ScanJob job, Function<ScanJob, Object> work, int megabytes) {
+        synchronized (inFlight) {
+            awaitingAdmission--;
+            try {
+                // Cannot overflow: submit only accepts a job while admissions and the executor queue have room for it
+                executor.execute(() -> run(key, job, work, megabytes));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, job);
+                scanMemory.release(megabytes);
+                job.markFailed("Job queue is full");
+            }
+        }
+    }
+
+    private void run(JobKey key, ScanJob job, Function<ScanJob, Object> work, int megabytes) {
+        job.markRunning();
+        logger.info("Started {} job {}", job.getType(), job.getId());
+        try {
+            job.markCompleted(work.apply(job));
+            logger.info("Completed {} job {}", job.getType(), job.getId());
+        } catch (Exception e) {
+            logger.error("{} job {} failed: ", job.getType(), job.getId(), e);
+            job.markFailed(e.getMessage());
+        } finally {
+            if (megabytes > 0) {
+                scanMemory.release(megabytes);
+            }
+            synchronized (inFlight) {
+                inFlight.remove(key, job);
+            }
+        }
+    }
+
+    private List<Object> scanParameters() {
+        EveConfig.Monopoly monopoly = eveConfig.getMonopoly();
+        return List.of(monopoly.getMaxInvestmentMillions(), monopoly.getTargetRoiPercentage(),
+                monopoly.getTaxPercentage(), monopoly.getSweepBudgetsMillions(), monopoly.getSweepRoiPercentages());
+    }
+
+    /**
+     * Returns the station snapshot load in progress for the region, or starts one. The load reports to
+     * the progress listener of the scan that started it.
+     */
+    private Mono<StationSnapshot> loadSnapshot(long regionId, ScanProgress progress) {
+        // The entry is only replaced after it was removed, so removing by region drops this load and no other
+        return Mono.defer(() -> snapshotLoads.computeIfAbsent(regionId,
+                id -> marketAnalysisService.loadStationSnapshot(id, eveConfig.getStations().get(id), progress)
+                        .doFinally(signal -> snapshotLoads.remove(id))
+                        .cache()));
+    }
+
+    private <T> Flux<T> admitted(long regionId, ScanProgress progress, Flux<T> scan) {
+        return Flux.usingWhen(admitScan(regionId, progress), megabytes -> scan,
+                megabytes -> Mono.fromRunnable(() -> scanMemory.release(megabytes)));
+    }
+
+    /**
+     * Reserves a scan's estimated memory. The region's order book is sized from its page count: the
+     * decoded pages and the merged book each hold up to X-Pages * ORDERS_PER_PAGE rows of
+     * OrderBook.BYTES_PER_ROW (if the filter kept every order), plus the raw bodies of the pages in
+     * flight. The page count is the last one seen, or page 1's X-Pages for a region never fetched,
+     * which the scan then reads from the page cache.
+     */
+    private Mono<Integer> admitScan(long regionId, ScanProgress progress) {
+        progress.update("Waiting for scan capacity", 0, 0);
+        int knownPages = pageCache.knownPageCount(regionId);
+        Mono<Integer> pages = knownPages > 0
+                ? Mono.just(knownPages)
+                : esiService.getOrderPageCount(regionId, OrderFilter.sellOrdersAt(eveConfig.getStations().get(regionId)));
+
+        return pages.flatMap(pageCount -> {
+            long bookBytes = 2L * pageCount * EsiService.ORDERS_PER_PAGE * OrderBook.BYTES_PER_ROW;
+            int pagesInFlight = Math.min(pageCount, Math.max(1, eveConfig.getEsi().getMaxConcurrentPages()));
+            long bodyBytes = (long) pagesInFlight * eveConfig.getJobs().getPageMemoryEstimateKb() * 1024;
+            int megabytes = (int) Math.ceil((bookBytes + bodyBytes) / (1024.0 * 1024.0));
+            return scanMemory.reserve(megabytes)
+                    .doOnNext(reserved -> logger.debug("Scan of region {} ({} pages) admitted with {}MB, {}MB of {}MB left",
+                            regionId, pageCount, reserved, scanMemory.getAvailableMb(), scanMemory.getBudgetMb()));
+        });
+    }
+
+    // Keeps the newest finished jobs so the job map cannot grow without bound
+    private void evictFinishedJobs() {
+        List<ScanJob> finished = jobs.values().stream()
+                .filter(ScanJob::isFinished)
+                .sorted(Comparator.comparing(ScanJob::getFinishedAt).reversed())
+                .toList();
+        for (int i = eveConfig.getJobs().getRetainedJobs(); i < finished.size(); i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    private record JobKey(ScanJob.Type type, Long regionId, List<Object> parameters) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
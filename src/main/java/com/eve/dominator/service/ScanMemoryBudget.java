@@ -0,0 +1,90 @@
+package com.eve.dominator.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Heap budget shared by running scans, in megabytes. A scan reserves its estimate before it
+ * starts and releases it when it ends. Reservations that do not fit wait in a FIFO queue and are
+ * granted as memory is released, so a waiting scan holds no thread and a large one is not starved.
+ */
+public class ScanMemoryBudget {
+
+    private final int budgetMb;
+    private final Object lock = new Object();
+    private int availableMb;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    public ScanMemoryBudget(int budgetMb) {
+        this.budgetMb = Math.max(1, budgetMb);
+        this.availableMb = this.budgetMb;
+    }
+
+    /**
+     * Emits the reserved megabytes once they fit the budget. A request above the whole budget
+     * reserves the whole budget, so it runs alone rather than never.
+     */
+    public Mono<Integer> reserve(int megabytes) {
+        int reserved = Math.max(1, Math.min(budgetMb, megabytes));
+        return Mono.create(sink -> {
+            synchronized (lock) {
+                if (!waiters.isEmpty() || availableMb < reserved) {
+                    Waiter waiter = new Waiter(sink, reserved);
+                    waiters.addLast(waiter);
+                    sink.onCancel(() -> onWaiterCancelled(waiter));
+                    return;
+                }
+                availableMb -= reserved;
+            }
+            sink.success(reserved);
+        });
+    }
+
+    public void release(int megabytes) {
+        List<Waiter> granted;
+        synchronized (lock) {
+            availableMb += megabytes;
+            granted = grantWaiters();
+        }
+        granted.forEach(waiter -> waiter.sink().success(waiter.megabytes()));
+    }
+
+    public int getAvailableMb() {
+        synchronized (lock) {
+            return availableMb;
+        }
+    }
+
+    public int getBudgetMb() {
+        return budgetMb;
+    }
+
+    // A sink only sees onCancel before it received its reservation, so a granted but undelivered one is released here
+    private void onWaiterCancelled(Waiter waiter) {
+        synchronized (lock) {
+            if (waiters.remove(waiter)) {
+                return;
+            }
+        }
+        release(waiter.megabytes());
+    }
+
+    // Grants queued reservations in order for as long as the head of the queue fits; called holding the lock
+    private List<Waiter> grantWaiters() {
+        List<Waiter> granted = new ArrayList<>();
+        while (!waiters.isEmpty() && waiters.peekFirst().megabytes() <= availableMb) {
+            Waiter waiter = waiters.pollFirst();
+            availableMb -= waiter.megabytes();
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private record Waiter(MonoSink<Integer> sink, int megabytes) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.config.EveConfig;
+import com.eve.dominator.model.StatisticsSnapshot;
+import com.eve.dominator.repository.LatestMarketStatisticsRepository;
+import com.eve.dominator.repository.StatisticsVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-optimized copy of every region's latest statistics at its published version, held as
+ * primitive columns (see StatisticsSnapshot). Warmed at startup and replaced as a whole after
+ * each import publishes, so readers always get one complete version without touching H2.
+ */
+@Component
+public class StatisticsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsCache.class);
+
+    private final LatestMarketStatisticsRepository latestStatisticsRepository;
+    private final StatisticsVersionRepository versionRepository;
+    private final EveConfig eveConfig;
+
+    private final Map<Long, StatisticsSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StatisticsCache(LatestMarketStatisticsRepository latestStatisticsRepository,
+                           StatisticsVersionRepository versionRepository, EveConfig eveConfig) {
+        this.latestStatisticsRepository = latestStatisticsRepository;
+        this.versionRepository = versionRepository;
+        this.eveConfig = eveConfig;
+    }
+
+    // Runs after MarketStatisticsBatchWriter has built the latest rows of versions published before it existed
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void warm() {
+        long start = System.currentTimeMillis();
+        int types = 0;
+        for (Long regionId : eveConfig.getImportRegions()) {
+            types += rebuild(regionId).size();
+        }
+        logger.info("Statistics cache warmed with {} types in {} regions in {}ms",
+                types, eveConfig.getImportRegions().size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the snapshot of the region's published version, loading it on first use
+     */
+    public StatisticsSnapshot get(long regionId) {
+        StatisticsSnapshot snapshot = snapshots.get(regionId);
+        return snapshot != null ? snapshot : rebuild(regionId);
+    }
+
+    /**
+     * Loads the region's published version and swaps it in. A snapshot is only ever replaced by one of
+     * the same or a newer version, so concurrent rebuilds cannot move readers back to older data.
+     */
+    public StatisticsSnapshot rebuild(long regionId) {
+        long version = versionRepository.findPublishedVersion(regionId).orElse(0L);
+        StatisticsSnapshot loaded = StatisticsSnapshot.of(regionId, version,
+                latestStatisticsRepository.findSnapshotRows(regionId, version));
+        StatisticsSnapshot current = snapshots.merge(regionId, loaded,
+                (existing, candidate) -> candidate.version() >= existing.version() ? candidate : existing);
+        logger.debug("Statistics cache for region {} at version {} with {} types", regionId, current.version(), current.size());
+        return current;
+    }
+}
@@ -1,10 +1,8 @@
 package com.eve.dominator.service;
 
 import com.eve.dominator.config.EveConfig;
-import com.eve.dominator.model.MarketStatistics;
+import com.eve.dominator.model.StatisticsSnapshot;
 import com.eve.dominator.model.TradehubComparisonResult;
-import com.eve.dominator.model.ItemName;
-import com.eve.dominator.repository.MarketStatisticsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,7 +21,6 @@ public class TradehubAnalysisService {
 
     private final MokaamService mokaamService;
     private final ItemNameService itemNameService;
-    private final MarketStatisticsRepository statisticsRepository;
     private final EveConfig eveConfig;
 
     // Thread pool for parallel processing
@@ -40,10 +37,9 @@ public class TradehubAnalysisService {
 
     @Autowired
     public TradehubAnalysisService(MokaamService mokaamService, ItemNameService itemNameService,
-                                 MarketStatisticsRepository statisticsRepository, EveConfig eveConfig) {
+                                 EveConfig eveConfig) {
         this.mokaamService = mokaamService;
         this.itemNameService = itemNameService;
-        this.statisticsRepository = statisticsRepository;
         this.eveConfig = eveConfig;
 
         // Create a thread pool with configurable number of threads
@@ -58,13 +54,20 @@ public class TradehubAnalysisService {
         logger.info("Starting parallel tradehub scan for period: {}", timePeriod);
         long startTime = System.currentTimeMillis();
 
+        // The scan reads the in-memory snapshot each region had when the scan started, so an import
+        // publishing a new version meanwhile does not mix two datasets into one result
+        Map<Long, StatisticsSnapshot> snapshots = new HashMap<>();
+        for (Long regionId : eveConfig.getImportRegions()) {
+            snapshots.put(regionId, mokaamService.getStatisticsSnapshot(regionId));
+        }
+
         // Step 1: Collect all unique type IDs with VWAP data in parallel
-        Set<Integer> allTypeIds = collectTypeIdsInParallel(timePeriod);
+        Set<Integer> allTypeIds = collectTypeIdsInParallel(timePeriod, snapshots);
         logger.info("Found {} unique items with {} VWAP data in {}ms",
                    allTypeIds.size(), timePeriod, System.currentTimeMillis() - startTime);
 
         // Step 2: Process items in parallel batches
-        List<TradehubComparisonResult> results = processItemsInParallel(allTypeIds, timePeriod);
+        List<TradehubComparisonResult> results = processItemsInParallel(allTypeIds, timePeriod, snapshots);
 
         // Step 3: Sort by price difference percentage (highest first)
         results.sort((a, b) -> Double.compare(b.getPriceDifferencePercentage(), a.getPriceDifferencePercentage()));
@@ -76,32 +79,24 @@ public class TradehubAnalysisService {
         return results;
     }
 
-    private Set<Integer> collectTypeIdsInParallel(String timePeriod) {
-        // Use the simple, fast approach - get distinct type IDs from each region
-        // and filter them during processing instead of in the database query
-        List<CompletableFuture<Set<Integer>>> futures = eveConfig.getImportRegions().stream()
-            .map(regionId -> CompletableFuture.supplyAsync(() -> {
-                // Use the fast, simple query that we know works
-                List<Integer> typeIds = statisticsRepository.findDistinctTypeIdsByRegionId(regionId, 5000); // Limit to 5000 items per region for performance
-                Set<Integer> typeIdSet = new HashSet<>(typeIds);
-
-                logger.debug("Region {} contributed {} items (limited to 5000 for performance)",
-                           regionId, typeIdSet.size());
-                return typeIdSet;
-            }, executor))
-            .collect(Collectors.toList());
-
-        // Combine results from all regions
-        Set<Integer> allTypeIds = futures.stream()
-            .map(CompletableFuture::join)
-            .flatMap(Set::stream)
-            .collect(Collectors.toSet());
+    private Set<Integer> collectTypeIdsInParallel(String timePeriod, Map<Long, StatisticsSnapshot> snapshots) {
+        // The snapshots hold every type of each region in memory, so no per-region limit is needed
+        // and items are filtered during processing
+        Set<Integer> allTypeIds = new HashSet<>();
+        for (Long regionId : eveConfig.getImportRegions()) {
+            StatisticsSnapshot snapshot = snapshots.get(regionId);
+            for (int slot = 0; slot < snapshot.size(); slot++) {
+                allTypeIds.add(snapshot.typeIdAt(slot));
+            }
+            logger.debug("Region {} contributed {} items", regionId, snapshot.size());
+        }
 
         logger.info("Total unique items to process: {}", allTypeIds.size());
         return allTypeIds;
     }
 
-    private List<TradehubComparisonResult> processItemsInParallel(Set<Integer> allTypeIds, String timePeriod) {
+    private List<TradehubComparisonResult> processItemsInParallel(Set<Integer> allTypeIds, String timePeriod,
+                                                                  Map<Long, StatisticsSnapshot> snapshots) {
         // Split items into batches for parallel processing
         int batchSize = Math.max(10, allTypeIds.size() / (Runtime.getRuntime().availableProcessors() * 4));
         List<List<Integer>> batches = partitionSet(allTypeIds, batchSize);
@@ -118,7 +113,7 @@ public class TradehubAnalysisService {
                 try {
                     logger.info("Starting batch {} with {} items", batchIndex, batch.size());
                     long batchStart = System.currentTimeMillis();
-                    List<TradehubComparisonResult> results = processBatch(batch, timePeriod);
+                    List<TradehubComparisonResult> results = processBatch(batch, timePeriod, snapshots);
                     long batchTime = System.currentTimeMillis() - batchStart;
                     logger.info("Completed batch {} in {}ms, found {} results", batchIndex, batchTime, results.size());
                     return results;
@@ -161,12 +156,12 @@ public class TradehubAnalysisService {
         return allResults;
     }
 
-    private List<TradehubComparisonResult> processBatch(List<Integer> typeIds, String timePeriod) {
+    private List<TradehubComparisonResult> processBatch(List<Integer> typeIds, String timePeriod, Map<Long, StatisticsSnapshot> snapshots) {
         List<TradehubComparisonResult> batchResults = new ArrayList<>();
 
         for (Integer typeId : typeIds) {
             try {
-                TradehubComparisonResult result = processItem(typeId, timePeriod);
+                TradehubComparisonResult result = processItem(typeId, timePeriod, snapshots);
                 if (result != null) {
                     batchResults.add(result);
                 }
@@ -180,25 +175,23 @@ public class TradehubAnalysisService {
         return batchResults;
     }
 
-    private TradehubComparisonResult processItem(Integer typeId, String timePeriod) {
+    private TradehubComparisonResult processItem(Integer typeId, String timePeriod, Map<Long, StatisticsSnapshot> snapshots) {
         try {
-            // Collect statistics from all regions - but do it sequentially to avoid overwhelming the DB
+            // Collect statistics from all regions out of the pinned in-memory snapshots
             Map<Long, RegionData> regionDataMap = new HashMap<>();
 
             for (Long regionId : eveConfig.getImportRegions()) {
-                try {
-                    MarketStatistics stats = mokaamService.getLatestStatisticsForItem(typeId, regionId);
-                    if (stats != null) {
-                        Double vwapPrice = getVwapForPeriod(stats, timePeriod);
-                        Long volume = getVolumeForPeriod(stats, timePeriod);
-
-                        if (vwapPrice != null && vwapPrice > 0 && volume != null && volume > 0) {
-                            double marketSize = vwapPrice * volume;
-                            regionDataMap.put(regionId, new RegionData(regionId, vwapPrice, marketSize));
-                        }
+                StatisticsSnapshot stats = snapshots.get(regionId);
+                int slot = stats.slotOf(typeId);
+                if (slot >= 0) {
+                    double vwapPrice = getVwapForPeriod(stats, slot, timePeriod);
+                    long volume = getVolumeForPeriod(stats, slot, timePeriod);
+
+                    // Missing prices are NaN and missing volumes negative, so both fail these checks
+                    if (vwapPrice > 0 && volume > 0) {
+                        double marketSize = vwapPrice * volume;
+                        regionDataMap.put(regionId, new RegionData(regionId, vwapPrice, marketSize));
                     }
-                } catch (Exception e) {
-                    logger.debug("Error fetching data for item {} region {}: {}", typeId, regionId, e.getMessage());
                 }
             }
 
@@ -259,9 +252,11 @@ public class TradehubAnalysisService {
                 return null;
             }
 
-            // Get item name
-            ItemName itemName = itemNameService.getItemByTypeId(typeId);
-            String name = itemName != null ? itemName.getName() : "Unknown Item";
+            // Get item name from the in-memory dictionary
+            String name = itemNameService.getName(typeId);
+            if (name == null) {
+                name = "Unknown Item";
+            }
 
             return new TradehubComparisonResult(
                 typeId,
@@ -309,40 +304,35 @@ public class TradehubAnalysisService {
         return batches;
     }
 
-    private boolean hasVwapDataForPeriod(MarketStatistics stats, String timePeriod) {
-        Double vwap = getVwapForPeriod(stats, timePeriod);
-        return vwap != null && vwap > 0;
-    }
-
-    private Double getVwapForPeriod(MarketStatistics stats, String timePeriod) {
+    private double getVwapForPeriod(StatisticsSnapshot stats, int slot, String timePeriod) {
         switch (timePeriod.toLowerCase()) {
             case "weekly":
-                return stats.getVwapWeek();
+                return stats.vwapWeek(slot);
             case "monthly":
-                return stats.getVwapMonth();
+                return stats.vwapMonth(slot);
             case "quarterly":
-                return stats.getVwapQuarter();
+                return stats.vwapQuarter(slot);
             case "yearly":
-                return stats.getVwapYear();
+                return stats.vwapYear(slot);
             default:
                 logger.warn("Unknown time period: {}, defaulting to weekly", timePeriod);
-                return stats.getVwapWeek();
+                return stats.vwapWeek(slot);
         }
     }
 
-    private Long getVolumeForPeriod(MarketStatistics stats, String timePeriod) {
+    private long getVolumeForPeriod(StatisticsSnapshot stats, int slot, String timePeriod) {
         switch (timePeriod.toLowerCase()) {
             case "weekly":
-                return stats.getVolumeWeek();
+                return stats.volumeWeek(slot);
             case "monthly":
-                return stats.getVolumeMonth();
+                return stats.volumeMonth(slot);
             case "quarterly":
-                return stats.getVolumeQuarter();
+                return stats.volumeQuarter(slot);
             case "yearly":
-                return stats.getVolumeYear();
+                return stats.volumeYear(slot);
             default:
                 logger.warn("Unknown time period: {}, defaulting to weekly", timePeriod);
-                return stats.getVolumeWeek();
+                return stats.volumeWeek(slot);
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.model.OrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DominationSolverTest {
+
+    private static final double TAX_RATE = 0.05;
+    private static final double REQUIRED_ROI = 25;
+
+    @Test
+    void outlierBeyondTheBudgetPassesTheMaxPriceBoundButIsPrunedByTheReachableBound() {
+        // Ten orders of 100k ISK each at 100, and one far above them that a 500k budget never reaches
+        OrderBook.Builder builder = OrderBook.builder(11);
+        for (int i = 0; i < 10; i++) {
+            builder.add(i, 34, 60003760L, 100.0 + i * 0.01, 1000, 90, 0L, false);
+        }
+        builder.add(10, 34, 60003760L, 1000.0, 1, 90, 0L, false);
+        OrderBook book = builder.build();
+        double budget = 500_000;
+
+        assertTrue(DominationSolver.roiUpperBound(book, 0, book.size(), TAX_RATE) >= REQUIRED_ROI);
+
+        int[] selected = DominationSolver.selectCheapest(book, 0, book.size(), budget);
+        assertTrue(DominationSolver.reachableRoiUpperBound(book, selected, TAX_RATE) < REQUIRED_ROI);
+    }
+
+    @Test
+    void reachableBoundIsNeverBelowTheBestRoiWithinTheBudget() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 500; trial++) {
+            int orders = 2 + random.nextInt(30);
+            OrderBook.Builder builder = OrderBook.builder(orders);
+            for (int i = 0; i < orders; i++) {
+                builder.add(i, 34, 60003760L, 1 + random.nextInt(1000) * 0.5, 1 + random.nextInt(500), 90, 0L, false);
+            }
+            OrderBook book = builder.build();
+            double budget = 1_000 + random.nextInt(200_000);
+
+            int[] selected = DominationSolver.selectCheapest(book, 0, book.size(), budget);
+            double reachableBound = DominationSolver.reachableRoiUpperBound(book, selected, TAX_RATE);
+            assertTrue(reachableBound <= DominationSolver.roiUpperBound(book, 0, book.size(), TAX_RATE) + 1e-9);
+
+            DominationSolver.Candidate best = DominationSolver.of(book, selected, TAX_RATE).bestWithin(budget);
+            if (best != null) {
+                assertTrue(best.roiPercentage() <= reachableBound + 1e-9,
+                        "trial " + trial + ": ROI " + best.roiPercentage() + " above bound " + reachableBound);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.config.EveConfig;
+import com.eve.dominator.model.LiveMarketView;
+import com.eve.dominator.model.MarketAnalysisResult;
+import com.eve.dominator.model.OrderBook;
+import com.eve.dominator.service.MarketAnalysisService.StationSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MarketMonitorServiceTest {
+
+    private static final long REGION_ID = 10000002L;
+    private static final long STATION_ID = 60003760L;
+    private static final int TRITANIUM = 34;
+    private static final int PYERITE = 35;
+
+    private final MarketAnalysisService marketAnalysisService = mock(MarketAnalysisService.class);
+    private final ScanJobService scanJobService = mock(ScanJobService.class);
+    private MarketMonitorService monitor;
+    private StationSnapshot nextSnapshot;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        EveConfig eveConfig = new EveConfig();
+        eveConfig.setStations(Map.of(REGION_ID, STATION_ID));
+        monitor = new MarketMonitorService(marketAnalysisService, scanJobService, mock(EsiPageCache.class), eveConfig);
+
+        when(scanJobService.scanSnapshot(eq(REGION_ID), any())).thenAnswer(invocation ->
+                ((Function<StationSnapshot, Mono<?>>) invocation.getArgument(1)).apply(nextSnapshot));
+        // Every type that passes the prefilter has an opportunity
+        when(marketAnalysisService.analyzeTypes(any(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            IntPredicate volumeFilter = invocation.getArgument(1);
+            Map<Integer, MarketAnalysisResult> results = new HashMap<>();
+            for (int typeId : (int[]) invocation.getArgument(3)) {
+                if (volumeFilter.test(typeId)) {
+                    results.put(typeId, new MarketAnalysisResult(typeId, "Type " + typeId, 1, 10, 1000.0, 150.0));
+                }
+            }
+            return Mono.just(results);
+        });
+    }
+
+    @Test
+    void newStatisticsVersionReSolvesTypesWhoseOrdersDidNotChange() {
+        OrderBook orders = OrderBook.builder(2)
+                .add(1L, TRITANIUM, STATION_ID, 100.0, 10, 90, 0L, false)
+                .add(2L, PYERITE, STATION_ID, 200.0, 10, 90, 0L, false)
+                .build();
+
+        nextSnapshot = new StationSnapshot(orders, Set.of(TRITANIUM)::contains, "full", 1L);
+        monitor.pollRegion(REGION_ID).block();
+        assertEquals(List.of(TRITANIUM), opportunityTypeIds());
+
+        // Same orders, but the import moved Pyerite into the prefilter and Tritanium out of it
+        nextSnapshot = new StationSnapshot(orders, Set.of(PYERITE)::contains, "full", 2L);
+        monitor.pollRegion(REGION_ID).block();
+        assertEquals(List.of(PYERITE), opportunityTypeIds());
+        assertEquals(2, monitor.getView(REGION_ID).map(LiveMarketView::getChangedTypes).orElse(0));
+    }
+
+    @Test
+    void unchangedStatisticsVersionOnlyReSolvesChangedTypes() {
+        OrderBook orders = OrderBook.builder(1)
+                .add(1L, TRITANIUM, STATION_ID, 100.0, 10, 90, 0L, false)
+                .build();
+
+        nextSnapshot = new StationSnapshot(orders, Set.of(TRITANIUM)::contains, "full", 1L);
+        monitor.pollRegion(REGION_ID).block();
+
+        nextSnapshot = new StationSnapshot(orders, Set.of(TRITANIUM)::contains, "full", 1L);
+        monitor.pollRegion(REGION_ID).block();
+        assertEquals(List.of(TRITANIUM), opportunityTypeIds());
+        assertEquals(0, monitor.getView(REGION_ID).map(LiveMarketView::getChangedTypes).orElse(-1));
+    }
+
+    private List<Integer> opportunityTypeIds() {
+        return monitor.getView(REGION_ID).orElseThrow().getOpportunities().stream()
+                .map(MarketAnalysisResult::getTypeId)
+                .sorted()
+                .toList();
+    }
+}
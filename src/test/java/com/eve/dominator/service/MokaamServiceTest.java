@@ -0,0 +1,104 @@
+package com.eve.dominator.service;
+
+import com.eve.dominator.repository.MarketStatisticsRepository;
+import com.eve.dominator.repository.StatisticsVersionRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:mokaam-service-test;DB_CLOSE_DELAY=-1",
+        "eve.import-regions=10000002",
+        "eve.market-data.enable-item-names-import=false",
+        "eve.monitor.enabled=false"
+})
+class MokaamServiceTest {
+
+    private static final long REGION_ID = 10000002L;
+
+    private static final String TWO_TYPES = "{"
+            + "\"34\": {\"typeid\": 34, \"last_data\": \"2026-10-01\", \"vol_week\": 1000, \"vwap_week\": 5.0},"
+            + "\"35\": {\"typeid\": 35, \"last_data\": \"2026-10-01\", \"vol_week\": 500, \"vwap_week\": 10.0}"
+            + "}";
+
+    // Cut off in the middle of the third item, after two complete ones
+    private static final String TRUNCATED = "{"
+            + "\"34\": {\"typeid\": 34, \"last_data\": \"2026-10-02\", \"vol_week\": 2000, \"vwap_week\": 6.0},"
+            + "\"35\": {\"typeid\": 35, \"last_data\": \"2026-10-02\", \"vol_week\": 900, \"vwap_week\": 11.0},"
+            + "\"36\": {\"typeid\": 36, \"last_da";
+
+    private static volatile String responseBody = TWO_TYPES;
+    private static final HttpServer mokaam = startMokaam();
+
+    @Autowired
+    private MokaamService mokaamService;
+
+    @Autowired
+    private StatisticsVersionRepository versionRepository;
+
+    @Autowired
+    private MarketStatisticsRepository statisticsRepository;
+
+    @Autowired
+    private StatisticsCache statisticsCache;
+
+    @DynamicPropertySource
+    static void mokaamProperties(DynamicPropertyRegistry registry) {
+        registry.add("eve.mokaam.base-url", () -> "http://localhost:" + mokaam.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopMokaam() {
+        mokaam.stop(0);
+    }
+
+    @Test
+    void parseErrorKeepsThePublishedVersion() {
+        responseBody = TWO_TYPES;
+        mokaamService.importHistoricalData(REGION_ID).block();
+
+        long version = versionRepository.findPublishedVersion(REGION_ID).orElseThrow();
+        assertEquals(2, statisticsRepository.countByRegionId(REGION_ID, version));
+        assertEquals(2, statisticsCache.get(REGION_ID).size());
+
+        responseBody = TRUNCATED;
+        assertThrows(RuntimeException.class, () -> mokaamService.importHistoricalData(REGION_ID).block());
+
+        assertEquals(Optional.of(version), versionRepository.findPublishedVersion(REGION_ID));
+        assertEquals(2, statisticsRepository.countByRegionId(REGION_ID, version));
+        assertEquals(2, statisticsRepository.count(), "rows staged by the failed import are discarded");
+        assertEquals(version, statisticsCache.get(REGION_ID).version());
+        assertEquals(2, statisticsCache.get(REGION_ID).size());
+    }
+
+    private static HttpServer startMokaam() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/API/market/all", exchange -> {
+                byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}